@@ -59,4 +59,11 @@ public @interface DateField {
      */
     boolean ignoreMalformed() default false;
 
+    /**
+     * Accept only epoch milliseconds (the default jackson serialization of dates) rather than trying the default date parsers on every indexed value.
+     * 
+     * @return True to map the field with the epoch_millis format (default is false).
+     */
+    boolean epochMillis() default false;
+
 }
\ No newline at end of file
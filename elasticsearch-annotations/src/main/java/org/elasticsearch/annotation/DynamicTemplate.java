@@ -0,0 +1,56 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Dynamic template applied to the fields added to the mapping by elastic search (see {@link ESObject#dynamicTemplates()} and
+ * {@link ObjectField#dynamicTemplates()}). Conditions left empty are not generated.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({})
+public @interface DynamicTemplate {
+    /**
+     * @return The name of the template.
+     */
+    String name();
+
+    /**
+     * @return The pattern of the names of the fields the template applies to.
+     */
+    String match() default "";
+
+    /**
+     * @return The pattern of the names of the fields the template does not apply to.
+     */
+    String unmatch() default "";
+
+    /**
+     * @return The pattern of the full dotted path of the fields the template applies to. For a template of an {@link ObjectField}, the path is relative
+     *         to the field and defaults to all its sub fields.
+     */
+    String pathMatch() default "";
+
+    /**
+     * @return The json type detected by elastic search the template applies to (string, long, double, boolean, date, object or *).
+     */
+    String matchMappingType() default "";
+
+    /**
+     * @return The elastic search type of the matching fields (default keyword).
+     */
+    String type() default "keyword";
+
+    /**
+     * @return False to not index the matching fields (default true).
+     */
+    boolean index() default true;
+
+    /**
+     * @return False to disable the doc values of the matching fields (default true).
+     */
+    boolean docValues() default true;
+}
@@ -27,4 +27,40 @@ public @interface ESAll {
      * @return
      */
     String analyser() default "";
+
+    /**
+     * Add a prefix sub field to the all field that is indexed using an edge n-gram analyzer so search as you type queries are simple match queries on
+     * the all.prefix field rather than prefix expansions at query time. The analyzer and its filter are added to the index settings.
+     *
+     * @return True to add the edge n-gram prefix sub field (default is false).
+     */
+    boolean searchAsYouType() default false;
+
+    /**
+     * Minimum size of the edge n-grams of the prefix sub field.
+     *
+     * @return The minimum size of the n-grams (default is 1).
+     */
+    int minGram() default 1;
+
+    /**
+     * Maximum size of the edge n-grams of the prefix sub field.
+     *
+     * @return The maximum size of the n-grams (default is 20).
+     */
+    int maxGram() default 20;
+
+    /**
+     * Index the prefixes (between 2 and 5 characters) of the all field terms so prefix queries are single term lookups.
+     *
+     * @return True to set index_prefixes on the all field (default is false).
+     */
+    boolean indexPrefixes() default false;
+
+    /**
+     * Index two-term shingles of the all field so phrase queries (see SearchQueryMode.PHRASE) are faster.
+     *
+     * @return True to set index_phrases on the all field (default is false).
+     */
+    boolean indexPhrases() default false;
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.elasticsearch.mapping.DynamicMapping;
 import org.elasticsearch.mapping.IndexType;
 
 /**
@@ -19,9 +20,39 @@ public @interface ESObject {
 
 	boolean store() default false;
 
+	/**
+	 * Keep the _source of the documents. When disabled, documents are retrieved from their stored fields (see the store option of the field
+	 * annotations) which saves disk and fetch time for types that are written a lot and read through a few fields.
+	 *
+	 * @return True (default) to keep the _source, false to disable it.
+	 */
 	boolean source() default true;
 
 	boolean all() default true;
 
 	IndexAnalyserDefinition[] analyzerDefinitions() default {};
-}
\ No newline at end of file
+
+	IndexNormalizerDefinition[] normalizerDefinitions() default {};
+
+	/**
+	 * Prune the generated mapping based on the declared usage of the fields: doc_values are disabled on fields that are not faceted or
+	 * {@link org.elasticsearch.annotation.query.Sortable}, norms are disabled and index_options reduced to docs on analyzed fields that are only used as
+	 * filters. Fields used to sort the results must then be annotated with Sortable.
+	 *
+	 * @return True to optimize the mapping, false (default) to keep the elastic search defaults.
+	 */
+	boolean optimizeMapping() default false;
+
+	/**
+	 * Behaviour of elastic search for the fields of the documents that are not in the mapping. Free-form objects (maps without
+	 * {@link MapKeyValue}) add a field to the mapping for every new key unless dynamic is disabled.
+	 *
+	 * @return The dynamic setting of the root object (default inherits elastic search default: true).
+	 */
+	DynamicMapping dynamic() default DynamicMapping.DEFAULT;
+
+	/**
+	 * @return The dynamic templates applied to the fields added to the mapping of the class (default none).
+	 */
+	DynamicTemplate[] dynamicTemplates() default {};
+}
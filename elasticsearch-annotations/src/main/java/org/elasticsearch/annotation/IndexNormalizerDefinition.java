@@ -0,0 +1,20 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Define a custom normalizer in the index settings.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.TYPE })
+public @interface IndexNormalizerDefinition {
+    String name();
+
+    String[] filters() default {};
+
+    String[] char_filter() default {};
+}
@@ -0,0 +1,64 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Index level settings of an {@link ESObject}, merged with the analysis settings in the index settings generated for the class so the tuning of an index
+ * is kept when it is recreated. Settings left to their default value are not generated (elastic search defaults apply).
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IndexSettings {
+    /**
+     * @return The number of primary shards of the index (default -1 to use elastic search default).
+     */
+    int numberOfShards() default -1;
+
+    /**
+     * @return The number of replicas of every shard (default -1 to use elastic search default).
+     */
+    int numberOfReplicas() default -1;
+
+    /**
+     * @return The refresh interval of the index ("30s", "-1" to disable refresh), empty (default) to use elastic search default.
+     */
+    String refreshInterval() default "";
+
+    /**
+     * @return The codec used to compress the stored fields ("best_compression"), empty (default) to use elastic search default.
+     */
+    String codec() default "";
+
+    /**
+     * @return The maximum value of from + size of a search request (default -1 to use elastic search default).
+     */
+    int maxResultWindow() default -1;
+
+    /**
+     * @return The durability of the translog ("request" or "async"), empty (default) to use elastic search default.
+     */
+    String translogDurability() default "";
+
+    /**
+     * @return The number of shards a custom routing value can go to (default -1 to use elastic search default).
+     */
+    int routingPartitionSize() default -1;
+
+    /**
+     * Fields used to sort the segments of the index (index sorting), they must have doc values.
+     * 
+     * @return The names of the index sort fields.
+     */
+    String[] sortFields() default {};
+
+    /**
+     * Flags that must match the sortFields array (when not empty) and specifies for each field if the index is sorted in descending order.
+     * 
+     * @return An array that contains true if the index is sorted in descending order on the given field, empty (default) to sort in ascending order.
+     */
+    boolean[] sortDescending() default {};
+}
@@ -0,0 +1,36 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generate an index template for an {@link ESObject} so the indices of the class (per tenant, per period etc.) are created by elastic search on their
+ * first write with the mapping and settings of the class rather than explicitly. Classes with a time partitioned {@link TimeStamp} get a template with
+ * the default values.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface IndexTemplate {
+    /**
+     * @return The name of the template, empty (default) to use the index type of the class.
+     */
+    String name() default "";
+
+    /**
+     * @return The patterns of the names of the indices created with the template, empty (default) for &lt;name&gt;-*.
+     */
+    String[] patterns() default {};
+
+    /**
+     * @return The aliases added to the created indices, empty (default) for the name of the template so the indices can be searched together.
+     */
+    String[] aliases() default {};
+
+    /**
+     * @return The order of the template, templates with a higher order override the ones with a lower order matching the same index (default 0).
+     */
+    int order() default 0;
+}
@@ -123,4 +123,11 @@ public @interface MapKeyValue {
      * @return
      */
     int positionOffsetGap() default 0;
+
+    /**
+     * Load the analyzed key in heap fielddata so it can be sorted or aggregated. Fielddata consumes a lot of memory.
+     *
+     * @return True to enable fielddata on an analyzed field (default is true), false to save memory on keys that are never sorted or aggregated.
+     */
+    boolean fielddata() default true;
 }
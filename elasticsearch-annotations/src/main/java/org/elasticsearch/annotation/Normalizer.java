@@ -0,0 +1,26 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Map a string field as a keyword with a normalizer so term filters and facets are done on doc values backed keywords rather than on analyzed text. The
+ * filter values are normalized by elastic search and are not processed on the client.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface Normalizer {
+    /** Name of the lowercase normalizer that is added to the index settings when used and not defined in {@link ESObject#normalizerDefinitions()}. */
+    String LOWERCASE = "lowercase_normalizer";
+
+    /**
+     * The normalizer to apply on the keyword, must be the default lowercase normalizer or a normalizer defined in
+     * {@link ESObject#normalizerDefinitions()}.
+     * 
+     * @return Name of the normalizer.
+     */
+    String normalizer() default LOWERCASE;
+}
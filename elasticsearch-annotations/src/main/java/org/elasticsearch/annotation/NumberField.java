@@ -6,6 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.NumberType;
 
 /**
  * 
@@ -59,4 +60,34 @@ public @interface NumberField {
      */
     boolean ignoreMalformed() default false;
 
+    /**
+     * The elastic search type of the field. Defaults to the type matching the java type, or to the smallest integral type that contains the range defined by
+     * {@link #minValue()} and {@link #maxValue()} for integral fields.
+     * 
+     * @return The elastic search type of the field.
+     */
+    NumberType type() default NumberType.DEFAULT;
+
+    /**
+     * Scaling factor of a scaled_float field: values are stored as long computed from the value multiplied by the factor (100 for a price with cents).
+     * Setting a scaling factor on a floating point field with the default type maps it as scaled_float.
+     * 
+     * @return The scaling factor of the field.
+     */
+    double scalingFactor() default 0;
+
+    /**
+     * The minimal value of an integral field, used to select a narrower elastic search type than the java type.
+     * 
+     * @return The minimal value of the field.
+     */
+    long minValue() default Long.MIN_VALUE;
+
+    /**
+     * The maximal value of an integral field, used to select a narrower elastic search type than the java type.
+     * 
+     * @return The maximal value of the field.
+     */
+    long maxValue() default Long.MAX_VALUE;
+
 }
\ No newline at end of file
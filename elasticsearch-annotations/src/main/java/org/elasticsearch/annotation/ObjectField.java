@@ -5,6 +5,8 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.elasticsearch.mapping.DynamicMapping;
+
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ ElementType.FIELD, ElementType.METHOD })
 public @interface ObjectField {
@@ -23,4 +25,17 @@ public @interface ObjectField {
      * @return Yes or no (default is yes)
      */
     boolean enabled() default true;
+
+    /**
+     * Behaviour of elastic search for the sub fields of the object that are not in the mapping, set it to false or strict on free-form maps so every new
+     * key does not add a field to the mapping.
+     * 
+     * @return The dynamic setting of the object (default inherits the setting of the parent object).
+     */
+    DynamicMapping dynamic() default DynamicMapping.DEFAULT;
+
+    /**
+     * @return The dynamic templates applied to the sub fields of the object added to the mapping (default none).
+     */
+    DynamicTemplate[] dynamicTemplates() default {};
 }
@@ -0,0 +1,45 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.RangeType;
+
+/**
+ * Map a min/max pair as a range field. The annotated member is serialized as an object with gte, gt, lte and lt bounds.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface RangeField {
+    /**
+     * The type of the bounds of the range.
+     * 
+     * @return The type of the bounds.
+     */
+    RangeType type();
+
+    /**
+     * Set to no if the value should not be indexed.
+     * 
+     * @return No or not_analyzed (default is not_analyzed).
+     */
+    IndexType index() default IndexType.not_analyzed;
+
+    /**
+     * Set to yes to store actual field in the index, no to not store it.
+     * 
+     * @return Yes or no (default is no).
+     */
+    boolean store() default false;
+
+    /**
+     * Format of the bounds for a date range.
+     * 
+     * @return The date format (empty for elastic search default).
+     */
+    String format() default "";
+}
@@ -0,0 +1,17 @@
+package org.elasticsearch.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Exclude a field of the root object from the _source stored by elastic search (_source excludes of the mapping). The field is still indexed (and
+ * copied to the all field) but cannot be returned from the _source, use it for large fields that are searched but never displayed (full text bodies,
+ * derived token fields). An excluded object field excludes all its properties.
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface SourceExclude {
+}
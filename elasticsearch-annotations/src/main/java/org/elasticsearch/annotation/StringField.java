@@ -129,5 +129,31 @@ public @interface StringField {
      */
     int positionOffsetGap() default 0;
 
+    /**
+     * Minimum length of the term prefixes to index in a separate field (index_prefixes) so prefix queries of a length within the indexed range are
+     * single term lookups. Only applies to analyzed fields. Defaults to -1 (no prefixes indexed), when only the max chars is set the elastic search
+     * default (2) is used.
+     *
+     * @return The minimum prefix length to index.
+     */
+    int indexPrefixesMinChars() default -1;
+
+    /**
+     * Maximum length of the term prefixes to index in a separate field (index_prefixes). Only applies to analyzed fields. Defaults to -1 (no prefixes
+     * indexed), when only the min chars is set the elastic search default (5) is used.
+     *
+     * @return The maximum prefix length to index.
+     */
+    int indexPrefixesMaxChars() default -1;
+
+    /**
+     * Load the analyzed text in heap fielddata so it can be sorted or aggregated. Fielddata consumes a lot of memory, faceted or sortable (see
+     * {@link org.elasticsearch.annotation.query.Sortable}) analyzed fields
+     * get a keyword sub field (using doc values) instead and never use fielddata.
+     *
+     * @return True to enable fielddata on an analyzed field (default is true), false to save memory on fields that are never sorted or aggregated.
+     */
+    boolean fielddata() default true;
+
 
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
 import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.TimePartition;
 
 /**
  * Timestamp field for elastic search.
@@ -20,4 +21,11 @@ public @interface TimeStamp {
 	boolean store() default false;
 	
 	String format() default "";
-}
\ No newline at end of file
+
+	/**
+	 * Partition the documents of the class in an index per period of their timestamp. The field must be a date or epoch milliseconds.
+	 * 
+	 * @return The time partitioning of the indices of the class (default is none).
+	 */
+	TimePartition partition() default TimePartition.NONE;
+}
@@ -0,0 +1,49 @@
+package org.elasticsearch.annotation.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Date histogram facet counts the documents of a date field in time buckets (day, week, hour etc.).
+ * </p>
+ * <p>
+ * This annotation is used to define the behavior of a default facet search. The field can be filtered with values formatted as "from - to" where each
+ * bound (epoch milliseconds or any date accepted by the field format) can be empty, or with the key of a bucket (formatted with the facet format) to
+ * filter on the bucket.
+ * </p>
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface DateHistogramFacet {
+    /**
+     * The interval of the buckets, either a calendar unit (minute, hour, day, week, month, quarter, year) or a fixed interval (90m, 12h, 7d...).
+     * 
+     * @return The interval of the buckets (default is day).
+     */
+    String interval() default "day";
+
+    /**
+     * The format of the keys of the buckets.
+     * 
+     * @return The date format of the keys (empty to return only the epoch milliseconds keys).
+     */
+    String format() default "";
+
+    /**
+     * The time zone used to compute the buckets boundaries.
+     * 
+     * @return The time zone id (empty for UTC).
+     */
+    String timeZone() default "";
+
+    /**
+     * The minimal number of documents for a bucket to be returned.
+     * 
+     * @return The minimal number of documents of a bucket (default is 1).
+     */
+    long minDocCount() default 1;
+}
@@ -0,0 +1,17 @@
+package org.elasticsearch.annotation.query;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>
+ * Defines that the field is used to sort the search results. Analyzed string fields that are sortable get a keyword sub field that is used for sorting.
+ * </p>
+ * 
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD, ElementType.METHOD })
+public @interface Sortable {
+}
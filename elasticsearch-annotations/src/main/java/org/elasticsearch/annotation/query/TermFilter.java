@@ -23,4 +23,19 @@ public @interface TermFilter {
      * @return the path generator.
      */
     Class<? extends IPathGenerator> pathGenerator() default IPathGenerator.DEFAULT.class;
+
+    /**
+     * Number of values above which the values of the filter are stored in a lookup document and filtered through a terms lookup query rather than sent in
+     * the request (permission filters with thousands of ids for example).
+     *
+     * @return The number of values above which a terms lookup is used, negative to never use a terms lookup (default).
+     */
+    int lookupThreshold() default -1;
+
+    /**
+     * Remove the duplicated values of the filter before building the query.
+     *
+     * @return True to remove the duplicated values (default is false).
+     */
+    boolean deduplicate() default false;
 }
\ No newline at end of file
@@ -5,6 +5,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+import org.elasticsearch.mapping.TermsCollectMode;
+import org.elasticsearch.mapping.TermsExecutionHint;
+
 //import org.elasticsearch.search.facet.terms.TermsFacet.ComparatorType;
 
 /**
@@ -50,8 +53,8 @@ public @interface TermsFacet {
 //    ComparatorType comparatorType() default ComparatorType.COUNT;
 
     /**
-     * Allow to get all the terms in the terms facet, ones that do not match a hit, will have a count of 0. Note, this
-     * should not be used with fields that have many terms.
+     * Allow to get all the terms of the field rather than the most frequent ones. The facet is still a terms aggregation of the size most frequent terms,
+     * all the terms (ordered by value) can be paged through QueryHelper's allTerms that uses a composite aggregation.
      * 
      * @return true or false, default is false.
      */
@@ -63,4 +66,40 @@ public @interface TermsFacet {
      * @return Array of terms that should be excluded from the terms facet request result.
      */
     String[] exclude() default {};
+
+    /**
+     * The execution hint of the terms aggregation (MAP or GLOBAL_ORDINALS).
+     * 
+     * @return The execution hint, default let elastic search choose.
+     */
+    TermsExecutionHint executionHint() default TermsExecutionHint.DEFAULT;
+
+    /**
+     * Load the global ordinals of the field at refresh time rather than on the first aggregation request after a refresh. This is set on the mapping of
+     * the field (keyword or text fields with fielddata).
+     * 
+     * @return true to load global ordinals eagerly, default is false.
+     */
+    boolean eagerGlobalOrdinals() default false;
+
+    /**
+     * The number of terms each shard returns to the coordinating node.
+     * 
+     * @return The shard size, default (-1) let elastic search compute it from the size.
+     */
+    int shardSize() default -1;
+
+    /**
+     * The collection mode of the terms aggregation, BREADTH_FIRST should be used when sub aggregations are defined on a high cardinality field.
+     * 
+     * @return The collect mode, default let elastic search choose.
+     */
+    TermsCollectMode collectMode() default TermsCollectMode.DEFAULT;
+
+    /**
+     * Add a missing aggregation that counts the documents without value for the field.
+     * 
+     * @return true to add the missing aggregation (default), false to omit it.
+     */
+    boolean missing() default true;
 }
\ No newline at end of file
@@ -0,0 +1,19 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Behaviour of elastic search for the fields of a document that are not in the mapping: TRUE adds them to the mapping, FALSE keeps them in the _source
+ * without indexing them and STRICT rejects the document. DEFAULT inherits the behaviour of the parent object (true for the root object).
+ * 
+ */
+public enum DynamicMapping {
+    TRUE, FALSE, STRICT, DEFAULT;
+
+    /**
+     * Get the value of the dynamic setting in elastic search.
+     * 
+     * @return The value of the dynamic setting (true, false or strict).
+     */
+    public String getEsValue() {
+        return name().toLowerCase();
+    }
+}
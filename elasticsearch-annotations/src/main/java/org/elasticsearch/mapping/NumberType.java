@@ -0,0 +1,43 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Elastic search type of a numeric field. DEFAULT maps the java type one-to-one (double to double, long to long etc.), HALF_FLOAT and SCALED_FLOAT allows to
+ * reduce the size of the doc values of floating point fields that does not need the full precision.
+ * 
+ */
+public enum NumberType {
+    BYTE(1), SHORT(2), INTEGER(4), LONG(8), HALF_FLOAT(2), FLOAT(4), DOUBLE(8), SCALED_FLOAT(8), DEFAULT(0);
+
+    private final int width;
+
+    NumberType(int width) {
+        this.width = width;
+    }
+
+    /**
+     * Get the number of bytes of a value of the type (a scaled float is stored as a long).
+     * 
+     * @return The width of the type in bytes, 0 for DEFAULT.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Check if the type is an integral type.
+     * 
+     * @return True for byte, short, integer and long.
+     */
+    public boolean isIntegral() {
+        return this == BYTE || this == SHORT || this == INTEGER || this == LONG;
+    }
+
+    /**
+     * Get the name of the type in elastic search.
+     * 
+     * @return The name of the elastic search type.
+     */
+    public String getEsType() {
+        return name().toLowerCase();
+    }
+}
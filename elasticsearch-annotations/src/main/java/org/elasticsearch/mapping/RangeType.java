@@ -0,0 +1,18 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Type of the bounds of a range field.
+ * 
+ */
+public enum RangeType {
+    INTEGER, LONG, FLOAT, DOUBLE, DATE, IP;
+
+    /**
+     * Get the name of the range type in elastic search.
+     * 
+     * @return The name of the elastic search type (integer_range, long_range etc.).
+     */
+    public String getEsType() {
+        return name().toLowerCase() + "_range";
+    }
+}
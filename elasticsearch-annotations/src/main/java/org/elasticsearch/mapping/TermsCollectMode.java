@@ -0,0 +1,9 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Collection mode of a terms aggregation. BREADTH_FIRST defers the collection of sub-aggregations to the top buckets only.
+ * 
+ */
+public enum TermsCollectMode {
+    DEPTH_FIRST, BREADTH_FIRST, DEFAULT;
+}
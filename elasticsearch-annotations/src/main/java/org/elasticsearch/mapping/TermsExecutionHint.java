@@ -0,0 +1,19 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Mechanism used by elastic search to execute a terms aggregation. GLOBAL_ORDINALS (the default for keyword fields) builds ordinals for the whole shard
+ * while MAP uses the values of the matching documents directly and is usually faster when only few documents match the query.
+ * 
+ */
+public enum TermsExecutionHint {
+    MAP, GLOBAL_ORDINALS, DEFAULT;
+
+    /**
+     * Get the value of the execution hint in elastic search.
+     * 
+     * @return The elastic search execution hint (map or global_ordinals).
+     */
+    public String getEsValue() {
+        return name().toLowerCase();
+    }
+}
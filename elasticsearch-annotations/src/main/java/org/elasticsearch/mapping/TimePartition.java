@@ -0,0 +1,10 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Time partitioning of the documents of a class with a {@link org.elasticsearch.annotation.TimeStamp} field: each document is written to the index of the
+ * period (UTC) of its timestamp, named &lt;index&gt;-&lt;period&gt; (yyyy.MM.dd for days, yyyy.'w'ww for ISO weeks and yyyy.MM for months).
+ * 
+ */
+public enum TimePartition {
+    NONE, DAILY, WEEKLY, MONTHLY;
+}
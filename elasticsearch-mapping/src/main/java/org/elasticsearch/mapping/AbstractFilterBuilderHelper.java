@@ -1,5 +1,8 @@
 package org.elasticsearch.mapping;
 
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+
 /**
  * Abstract class for a filter builder helper (defines hashcode and equals based on the esFieldName as only a single filter is allowed on a field by our
  * framework).
@@ -38,6 +41,31 @@ public abstract class AbstractFilterBuilderHelper implements IFilterBuilderHelpe
         return nestedPath == null ? filterPath : nestedPath + "." + filterPath;
     }
 
+    @Override
+    public QueryBuilder buildFilter(String key, FilterSpec filterSpec) {
+        switch (filterSpec.getKind()) {
+        case VALUES:
+            return buildFilter(key, filterSpec.getValues());
+        case EXISTS:
+            return QueryBuilders.existsQuery(key);
+        case MISSING:
+            return QueryBuilders.boolQuery().mustNot(QueryBuilders.existsQuery(key));
+        default:
+            return buildTypedFilter(key, filterSpec);
+        }
+    }
+
+    /**
+     * Build a filter for the typed filter specs (terms and ranges) supported by the helper.
+     * 
+     * @param key The key as String.
+     * @param filterSpec The typed filter.
+     * @return A filter builder.
+     */
+    protected QueryBuilder buildTypedFilter(String key, FilterSpec filterSpec) {
+        throw new IllegalArgumentException("Filter <" + filterSpec + "> is not supported on field <" + key + ">.");
+    }
+
     @Override
     public int hashCode() {
         final int prime = 31;
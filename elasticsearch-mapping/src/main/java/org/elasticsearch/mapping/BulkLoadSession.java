@@ -0,0 +1,100 @@
+package org.elasticsearch.mapping;
+
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.common.xcontent.XContentType;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Documents added to a bulk load session are sent to elastic search by bulk requests of a fixed number of documents. Failed documents are logged and
+ * counted, they do not stop the load.
+ */
+@Slf4j
+public class BulkLoadSession {
+    private static final String TYPE = "_doc";
+
+    private final ElasticSearchClient esClient;
+    private final String tag;
+    private final String defaultIndex;
+    private final int bulkSize;
+    private BulkRequestBuilder bulkRequestBuilder;
+    private long indexed = 0;
+    private long failed = 0;
+
+    /**
+     * Create a bulk load session.
+     *
+     * @param esClient The elastic search client.
+     * @param tag The metrics tag of the bulk requests.
+     * @param defaultIndex The index in which documents are added when no index is specified.
+     * @param bulkSize The number of documents per bulk request.
+     */
+    public BulkLoadSession(ElasticSearchClient esClient, String tag, String defaultIndex, int bulkSize) {
+        this.esClient = esClient;
+        this.tag = tag;
+        this.defaultIndex = defaultIndex;
+        this.bulkSize = bulkSize;
+    }
+
+    /**
+     * Add a document to the default index of the session.
+     *
+     * @param id The id of the document.
+     * @param jsonSource The json source of the document.
+     */
+    public void add(String id, String jsonSource) {
+        add(defaultIndex, id, jsonSource);
+    }
+
+    /**
+     * Add a document to an index.
+     *
+     * @param index The index in which to add the document.
+     * @param id The id of the document.
+     * @param jsonSource The json source of the document.
+     */
+    public void add(String index, String id, String jsonSource) {
+        if (bulkRequestBuilder == null) {
+            bulkRequestBuilder = esClient.getClient().prepareBulk();
+        }
+        bulkRequestBuilder.add(esClient.getClient().prepareIndex(index, TYPE, id).setSource(jsonSource, XContentType.JSON));
+        if (bulkRequestBuilder.numberOfActions() >= bulkSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Send the pending documents to elastic search.
+     */
+    public void flush() {
+        if (bulkRequestBuilder == null || bulkRequestBuilder.numberOfActions() == 0) {
+            return;
+        }
+        BulkResponse response = esClient.execute("bulk", tag, bulkRequestBuilder);
+        bulkRequestBuilder = null;
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed()) {
+                failed++;
+                log.warn("Failed to load document <{}> in index <{}>: {}", item.getId(), item.getIndex(), item.getFailureMessage());
+            } else {
+                indexed++;
+            }
+        }
+    }
+
+    /**
+     * @return The number of documents successfully loaded so far.
+     */
+    public long getIndexed() {
+        return indexed;
+    }
+
+    /**
+     * @return The number of documents that failed to load so far.
+     */
+    public long getFailed() {
+        return failed;
+    }
+}
@@ -0,0 +1,55 @@
+package org.elasticsearch.mapping;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+
+/**
+ * Iterate over all the buckets of a composite aggregation, fetching the next page (using the after key of the previous one) only when required.
+ */
+public class CompositeFacetIterator implements Iterator<CompositeAggregation.Bucket> {
+    private final Function<Map<String, Object>, CompositeAggregation> pageFetcher;
+    private Iterator<? extends CompositeAggregation.Bucket> currentPage = Collections.emptyIterator();
+    private Map<String, Object> afterKey;
+    private boolean lastPage = false;
+
+    /**
+     * Create a new iterator.
+     *
+     * @param pageFetcher Function that executes the composite aggregation after the given key (null for the first page) and returns its result.
+     */
+    public CompositeFacetIterator(Function<Map<String, Object>, CompositeAggregation> pageFetcher) {
+        this.pageFetcher = pageFetcher;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!currentPage.hasNext() && !lastPage) {
+            fetchNextPage();
+        }
+        return currentPage.hasNext();
+    }
+
+    @Override
+    public CompositeAggregation.Bucket next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return currentPage.next();
+    }
+
+    private void fetchNextPage() {
+        CompositeAggregation page = pageFetcher.apply(afterKey);
+        if (page == null || page.getBuckets().isEmpty() || page.afterKey() == null) {
+            lastPage = true;
+        }
+        if (page != null) {
+            currentPage = page.getBuckets().iterator();
+            afterKey = page.afterKey();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.elasticsearch.mapping;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.elasticsearch.annotation.query.DateHistogramFacet;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.histogram.DateHistogramInterval;
+import org.joda.time.DateTimeZone;
+
+/**
+ * Build a date histogram facet aggregation. The field can be filtered with the keys of the buckets (formatted as returned by the facet), each key being
+ * filtered on its bucket [key, key + interval).
+ */
+public class DateHistogramAggregationBuilderHelper extends DateRangeFilterBuilderHelper implements IFacetBuilderHelper {
+    private final DateHistogramFacet dateHistogramFacet;
+
+    /**
+     * Initialize a {@link DateHistogramAggregationBuilderHelper} from the annotation that contains it's definition.
+     *
+     * @param nestedPath The path to the nested object if any.
+     * @param esFieldName The name of the field on which to apply the filter.
+     * @param dateHistogramFacet The annotation that contains the histogram definition.
+     */
+    public DateHistogramAggregationBuilderHelper(final String nestedPath, final String esFieldName, final DateHistogramFacet dateHistogramFacet) {
+        super(nestedPath, esFieldName);
+        this.dateHistogramFacet = dateHistogramFacet;
+    }
+
+    @Override
+    public List<AggregationBuilder> buildFacets() {
+        DateHistogramAggregationBuilder histogramBuilder = AggregationBuilders.dateHistogram(getEsFieldName()).field(getEsFieldName())
+                .dateHistogramInterval(new DateHistogramInterval(dateHistogramFacet.interval())).minDocCount(dateHistogramFacet.minDocCount());
+        if (!dateHistogramFacet.format().isEmpty()) {
+            histogramBuilder.format(dateHistogramFacet.format());
+        }
+        if (!dateHistogramFacet.timeZone().isEmpty()) {
+            histogramBuilder.timeZone(DateTimeZone.forID(dateHistogramFacet.timeZone()));
+        }
+        return Collections.singletonList(histogramBuilder);
+    }
+
+    @Override
+    protected QueryBuilder buildSingleRange(String key, String value) {
+        if (value.contains(RANGE_SEPARATOR)) {
+            return super.buildSingleRange(key, value);
+        }
+        String bucketKey = value.trim();
+        RangeQueryBuilder rangeQueryBuilder = QueryBuilders.rangeQuery(key).gte(bucketKey).lt(bucketKey + "||+" + getDateMathInterval());
+        // keys are parsed as formatted by the aggregation, with the format of the field when the facet has no format.
+        if (!dateHistogramFacet.format().isEmpty()) {
+            rangeQueryBuilder.format(dateHistogramFacet.format());
+        }
+        if (!dateHistogramFacet.timeZone().isEmpty()) {
+            rangeQueryBuilder.timeZone(dateHistogramFacet.timeZone());
+        }
+        return rangeQueryBuilder;
+    }
+
+    /**
+     * Get the interval of the facet as a date math expression.
+     */
+    private String getDateMathInterval() {
+        String interval = dateHistogramFacet.interval();
+        switch (interval) {
+        case "minute":
+            return "1m";
+        case "hour":
+            return "1h";
+        case "day":
+            return "1d";
+        case "week":
+            return "1w";
+        case "month":
+            return "1M";
+        case "quarter":
+        case "1q":
+            // date math has no quarter unit.
+            return "3M";
+        case "year":
+            return "1y";
+        default:
+            return interval;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.elasticsearch.mapping;
+
+import java.time.Instant;
+
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+
+/**
+ * Build a date range filter. Typed bounds ({@link Instant}, epoch milliseconds or {@link FilterSpec#dateRange(long, long)}) are sent as epoch milliseconds
+ * so no date is formatted or parsed, string values ("from - to", each bound may be empty) are sent as is and parsed by elastic search with the format of
+ * the field.
+ */
+public class DateRangeFilterBuilderHelper extends AbstractFilterBuilderHelper {
+    /** Elastic search format of dates as epoch milliseconds. */
+    public static final String EPOCH_MILLIS = "epoch_millis";
+    protected static final String RANGE_SEPARATOR = " - ";
+
+    /**
+     * Create a date range filter for the given field.
+     *
+     * @param nestedPath The path to the nested object if any.
+     * @param esFieldName The name of the field on which to apply the filter.
+     */
+    public DateRangeFilterBuilderHelper(final String nestedPath, final String esFieldName) {
+        super(nestedPath, esFieldName);
+    }
+
+    /**
+     * Build a filter on the field for the given bounds.
+     *
+     * @param from The lower bound (included) or null for an unbounded range.
+     * @param to The upper bound (excluded) or null for an unbounded range.
+     * @return The range filter.
+     */
+    public QueryBuilder buildFilter(Instant from, Instant to) {
+        return buildFilter(from == null ? null : from.toEpochMilli(), to == null ? null : to.toEpochMilli());
+    }
+
+    /**
+     * Build a filter on the field for the given bounds in epoch milliseconds.
+     *
+     * @param fromMillis The lower bound (included) or null for an unbounded range.
+     * @param toMillis The upper bound (excluded) or null for an unbounded range.
+     * @return The range filter.
+     */
+    public QueryBuilder buildFilter(Long fromMillis, Long toMillis) {
+        return buildFilter(getEsFieldName(),
+                FilterSpec.dateRange(fromMillis == null ? Long.MIN_VALUE : fromMillis, toMillis == null ? Long.MAX_VALUE : toMillis));
+    }
+
+    @Override
+    protected QueryBuilder buildTypedFilter(String key, FilterSpec filterSpec) {
+        if (!FilterSpec.Kind.DATE_RANGE.equals(filterSpec.getKind())) {
+            return super.buildTypedFilter(key, filterSpec);
+        }
+        RangeQueryBuilder rangeQueryBuilder = QueryBuilders.rangeQuery(key).format(EPOCH_MILLIS);
+        if (filterSpec.getFromMillis() != Long.MIN_VALUE) {
+            rangeQueryBuilder.gte(filterSpec.getFromMillis());
+        }
+        if (filterSpec.getToMillis() != Long.MAX_VALUE) {
+            rangeQueryBuilder.lt(filterSpec.getToMillis());
+        }
+        return rangeQueryBuilder;
+    }
+
+    @Override
+    public QueryBuilder buildFilter(final String key, final String... rangeValues) {
+        if (rangeValues == null || rangeValues.length == 0) {
+            throw new IllegalArgumentException("Filter values cannot be null or empty");
+        }
+        if (rangeValues.length == 1) {
+            return buildSingleRange(key, rangeValues[0]);
+        }
+        BoolQueryBuilder queryBuilder = QueryBuilders.boolQuery();
+        for (String rangeValue : rangeValues) {
+            queryBuilder.should(buildSingleRange(key, rangeValue));
+        }
+        queryBuilder.minimumShouldMatch(1);
+        return queryBuilder;
+    }
+
+    @Override
+    public QueryBuilder buildQuery(String key, String[] rangeValues) {
+        return buildFilter(key, rangeValues);
+    }
+
+    protected QueryBuilder buildSingleRange(String key, String value) {
+        String[] bounds = value.split(RANGE_SEPARATOR, -1);
+        if (bounds.length > 2) {
+            throw new IllegalArgumentException("Date range <" + value + "> must be formatted as <from - to>.");
+        }
+        RangeQueryBuilder rangeQueryBuilder = QueryBuilders.rangeQuery(key);
+        if (!bounds[0].trim().isEmpty()) {
+            rangeQueryBuilder.gte(bounds[0].trim());
+        }
+        if (bounds.length == 2 && !bounds[1].trim().isEmpty()) {
+            rangeQueryBuilder.lt(bounds[1].trim());
+        }
+        return rangeQueryBuilder;
+    }
+}
@@ -0,0 +1,56 @@
+package org.elasticsearch.mapping;
+
+import java.util.Map;
+
+import org.elasticsearch.annotation.DynamicTemplate;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Build the dynamic templates of a mapping from {@link DynamicTemplate} annotations. Elastic search only accepts dynamic templates on the root object so the
+ * templates of object fields are scoped to the path of the field and collected on the root mapping by the {@link MappingBuilder}.
+ */
+public final class DynamicTemplates {
+    /** Key of the dynamic templates in a mapping. */
+    public static final String DYNAMIC_TEMPLATES = "dynamic_templates";
+
+    private DynamicTemplates() {
+    }
+
+    /**
+     * Build a dynamic template.
+     *
+     * @param dynamicTemplate The template annotation.
+     * @param fieldPath The path of the object field that defines the template or null for a template defined on the class.
+     * @return The dynamic template as a single entry map (name to definition).
+     */
+    public static Map<String, Object> build(DynamicTemplate dynamicTemplate, String fieldPath) {
+        Map<String, Object> definition = Maps.newLinkedHashMap();
+        putIfSet(definition, "match", dynamicTemplate.match());
+        putIfSet(definition, "unmatch", dynamicTemplate.unmatch());
+        if (fieldPath == null) {
+            putIfSet(definition, "path_match", dynamicTemplate.pathMatch());
+        } else {
+            definition.put("path_match", fieldPath + "." + (dynamicTemplate.pathMatch().isEmpty() ? "*" : dynamicTemplate.pathMatch()));
+        }
+        putIfSet(definition, "match_mapping_type", dynamicTemplate.matchMappingType());
+        Map<String, Object> mapping = Maps.newLinkedHashMap();
+        mapping.put("type", dynamicTemplate.type());
+        if (!dynamicTemplate.index()) {
+            mapping.put("index", false);
+        }
+        if (!dynamicTemplate.docValues()) {
+            mapping.put("doc_values", false);
+        }
+        definition.put("mapping", mapping);
+        Map<String, Object> template = Maps.newLinkedHashMap();
+        template.put(dynamicTemplate.name(), definition);
+        return template;
+    }
+
+    private static void putIfSet(Map<String, Object> definition, String key, String value) {
+        if (!value.isEmpty()) {
+            definition.put(key, value);
+        }
+    }
+}
@@ -9,9 +9,17 @@ import java.util.Scanner;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import org.elasticsearch.ElasticsearchTimeoutException;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.ShardOperationFailedException;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthAction;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthRequestBuilder;
 import org.elasticsearch.action.admin.cluster.health.ClusterHealthResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.analysis.common.CommonAnalysisPlugin;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.transport.TransportClient;
@@ -21,14 +29,20 @@ import org.elasticsearch.common.network.NetworkModule;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.transport.TransportAddress;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.reindex.ReindexPlugin;
+import org.elasticsearch.mapping.metrics.IMetricsRegistry;
+import org.elasticsearch.mapping.metrics.NoOpMetricsRegistry;
 import org.elasticsearch.node.MockNode;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.plugins.Plugin;
+import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.transport.MockTcpTransportPlugin;
 import org.elasticsearch.transport.Netty4Plugin;
 import org.elasticsearch.transport.client.PreBuiltTransportClient;
 import org.elasticsearch.util.AddressParserUtil;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Component;
@@ -61,6 +75,7 @@ public class ElasticSearchClient {
     private String truststore = null;
     private String keystorePassword = null;
     private String truststorePassword = null;
+    private IMetricsRegistry metricsRegistry = NoOpMetricsRegistry.INSTANCE;
 
     @PostConstruct
     public void initialize() throws Exception {
@@ -122,6 +137,7 @@ public class ElasticSearchClient {
             plugins.add(Netty4Plugin.class);
             plugins.add(MockTcpTransportPlugin.class);
             plugins.add(CommonAnalysisPlugin.class);
+            plugins.add(ReindexPlugin.class);
             MockNode node = new MockNode(settings, plugins);
             node.start();
             this.client = node.client();
@@ -154,6 +170,91 @@ public class ElasticSearchClient {
         return this.client;
     }
 
+    /**
+     * Get the registry that receives the client side metrics.
+     *
+     * @return The metrics registry, a no-op registry if none is defined in the context.
+     */
+    public IMetricsRegistry getMetricsRegistry() {
+        return this.metricsRegistry;
+    }
+
+    /**
+     * Execute a request and record its metrics (latency, took time, hits, response size, rejections, timeouts and failures).
+     *
+     * @param operation The name of the operation (search, count, bulk etc.).
+     * @param tag The mapped classes (or indices) concerned by the request.
+     * @param requestBuilder The builder of the request to execute.
+     * @return The response of the request.
+     */
+    public <Response extends ActionResponse> Response execute(String operation, String tag, ActionRequestBuilder<?, Response, ?> requestBuilder) {
+        long start = System.nanoTime();
+        Response response;
+        try {
+            response = requestBuilder.execute().actionGet();
+        } catch (RuntimeException e) {
+            metricsRegistry.recordTime(IMetricsRegistry.LATENCY, operation, tag, millisSince(start));
+            metricsRegistry.increment(failureMetric(e), operation, tag);
+            throw e;
+        }
+        metricsRegistry.recordTime(IMetricsRegistry.LATENCY, operation, tag, millisSince(start));
+        if (response instanceof SearchResponse) {
+            recordSearchResponse(operation, tag, (SearchResponse) response);
+        } else if (response instanceof BulkResponse) {
+            recordBulkResponse(operation, tag, (BulkResponse) response);
+        } else if (response instanceof ClusterHealthResponse && ((ClusterHealthResponse) response).isTimedOut()) {
+            metricsRegistry.increment(IMetricsRegistry.TIMEOUTS, operation, tag);
+        }
+        return response;
+    }
+
+    private void recordSearchResponse(String operation, String tag, SearchResponse response) {
+        metricsRegistry.recordTime(IMetricsRegistry.TOOK, operation, tag, response.getTook().millis());
+        metricsRegistry.recordValue(IMetricsRegistry.HITS, operation, tag, response.getHits().getTotalHits());
+        long size = 0;
+        for (SearchHit hit : response.getHits().getHits()) {
+            if (hit.getSourceRef() != null) {
+                size += hit.getSourceRef().length();
+            }
+        }
+        metricsRegistry.recordValue(IMetricsRegistry.RESPONSE_SIZE, operation, tag, size);
+        if (response.isTimedOut()) {
+            metricsRegistry.increment(IMetricsRegistry.TIMEOUTS, operation, tag);
+        }
+        for (ShardOperationFailedException failure : response.getShardFailures()) {
+            metricsRegistry.increment(failureMetric(failure.getCause()), operation, tag);
+        }
+    }
+
+    private void recordBulkResponse(String operation, String tag, BulkResponse response) {
+        metricsRegistry.recordTime(IMetricsRegistry.TOOK, operation, tag, response.getTook().millis());
+        if (!response.hasFailures()) {
+            return;
+        }
+        for (BulkItemResponse item : response.getItems()) {
+            if (item.isFailed()) {
+                metricsRegistry.increment(failureMetric(item.getFailure().getCause()), operation, tag);
+            }
+        }
+    }
+
+    private String failureMetric(Throwable e) {
+        if (e == null) {
+            return IMetricsRegistry.FAILURES;
+        }
+        if (ExceptionsHelper.unwrap(e, EsRejectedExecutionException.class) != null) {
+            return IMetricsRegistry.REJECTIONS;
+        }
+        if (ExceptionsHelper.unwrap(e, ElasticsearchTimeoutException.class) != null) {
+            return IMetricsRegistry.TIMEOUTS;
+        }
+        return IMetricsRegistry.FAILURES;
+    }
+
+    private long millisSince(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1000000;
+    }
+
     /**
      * Wait for green status for the given indices.
      * 
@@ -165,7 +266,7 @@ public class ElasticSearchClient {
         builder.setIndices(indices);
         builder.setWaitForGreenStatus();
         builder.setTimeout(TimeValue.timeValueSeconds(30));
-        ClusterHealthResponse response = builder.execute().actionGet();
+        ClusterHealthResponse response = execute("cluster_health", String.join(",", indices), builder);
         log.debug("getStatus                : {}", response.getStatus());
         log.debug("getActivePrimaryShards   : {}", response.getActivePrimaryShards());
         log.debug("getActiveShards          : {}", response.getActiveShards());
@@ -178,6 +279,11 @@ public class ElasticSearchClient {
         return response;
     }
 
+    @Autowired(required = false)
+    public void setMetricsRegistry(IMetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry == null ? NoOpMetricsRegistry.INSTANCE : metricsRegistry;
+    }
+
     @Value("#{elasticsearchConfig['elasticSearch.clusterName']}")
     public void setClusterName(final String clusterName) {
         this.clusterName = clusterName;
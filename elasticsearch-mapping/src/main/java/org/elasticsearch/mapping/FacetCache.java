@@ -0,0 +1,180 @@
+package org.elasticsearch.mapping;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Client side cache for the facets (aggregations) computed by {@link QueryHelper}. Facet counts for a given set of filters change slowly so the
+ * aggregations results can be reused across searches and removed from the request sent to elastic search.
+ *
+ * The cache is disabled unless elasticSearch.facet_cache.max_size is set to a positive value. Entries expire after elasticSearch.facet_cache.ttl_seconds
+ * (defaults to 60 seconds). Only the writes done through {@link IndexManager} (bulk load and reindex) invalidate the cache: documents indexed, updated
+ * or deleted directly with the client are not seen by the cache and the facet counts stay stale until the entries expire, unless
+ * {@link #invalidate(String...)} is called after the write.
+ */
+@Component
+@Slf4j
+public class FacetCache {
+    private static final long DEFAULT_TTL_SECONDS = 60;
+
+    private long maxSize = 0;
+    private long ttlSeconds = DEFAULT_TTL_SECONDS;
+    private Cache<Key, InternalAggregations> cache;
+
+    @PostConstruct
+    public void initialize() {
+        if (maxSize > 0) {
+            cache = CacheBuilder.newBuilder().maximumSize(maxSize).expireAfterWrite(ttlSeconds, TimeUnit.SECONDS).build();
+            log.info("Facet cache enabled with max size <" + maxSize + "> and ttl <" + ttlSeconds + "> seconds.");
+        } else {
+            cache = null;
+        }
+    }
+
+    /**
+     * Check if the facet cache is enabled.
+     *
+     * @return True if the cache is enabled, false if not.
+     */
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    /**
+     * Get the aggregations cached for the given key.
+     *
+     * @param key The key of the facet request.
+     * @return The cached aggregations or null if the cache is disabled or if no valid entry exists for the key.
+     */
+    public InternalAggregations get(Key key) {
+        if (cache == null) {
+            return null;
+        }
+        return cache.getIfPresent(key);
+    }
+
+    /**
+     * Cache the aggregations computed for the given key.
+     *
+     * @param key The key of the facet request.
+     * @param aggregations The aggregations returned by elastic search.
+     */
+    public void put(Key key, InternalAggregations aggregations) {
+        if (cache != null && aggregations != null) {
+            cache.put(key, aggregations);
+        }
+    }
+
+    /**
+     * Remove all the entries that have been computed on at least one of the given indices. This must be called when documents are indexed, updated or
+     * deleted. Entries are keyed on the searched names: the updated indices must contain the aliases of the written indices (as done by
+     * {@link IndexManager}), searched patterns are matched against the updated indices and searches on all the indices are always invalidated.
+     *
+     * @param indices The indices (and their aliases) that have been updated.
+     */
+    public void invalidate(String... indices) {
+        if (cache == null) {
+            return;
+        }
+        if (indices == null || indices.length == 0) {
+            invalidateAll();
+            return;
+        }
+        List<String> updatedIndices = Arrays.asList(indices);
+        cache.asMap().keySet().removeIf(key -> isUpdated(key.indices, updatedIndices));
+    }
+
+    private boolean isUpdated(Set<String> searchedIndices, List<String> updatedIndices) {
+        if (searchedIndices.isEmpty() || searchedIndices.contains("_all")) {
+            return true;
+        }
+        for (String searchedIndex : searchedIndices) {
+            for (String updatedIndex : updatedIndices) {
+                if (Regex.simpleMatch(searchedIndex, updatedIndex)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Remove all the entries from the cache.
+     */
+    public void invalidateAll() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.facet_cache.max_size']}")
+    public void setMaxSize(final String maxSize) {
+        if (maxSize != null) {
+            this.maxSize = Long.parseLong(maxSize.trim());
+        }
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.facet_cache.ttl_seconds']}")
+    public void setTtlSeconds(final String ttlSeconds) {
+        if (ttlSeconds != null) {
+            this.ttlSeconds = Long.parseLong(ttlSeconds.trim());
+        }
+    }
+
+    /**
+     * Key of a facet request: the searched classes and indices, the query and post filter (that contains the normalized filters) and the requested
+     * aggregations.
+     */
+    public static final class Key {
+        private final List<String> classNames;
+        private final Set<String> indices;
+        private final String query;
+        private final String facets;
+
+        public Key(List<String> classNames, String[] indices, String query, String facets) {
+            this.classNames = classNames;
+            this.indices = indices == null ? Collections.emptySet() : new TreeSet<String>(Arrays.asList(indices));
+            this.query = query;
+            this.facets = facets;
+        }
+
+        @Override
+        public int hashCode() {
+            final int prime = 31;
+            int result = 1;
+            result = prime * result + classNames.hashCode();
+            result = prime * result + indices.hashCode();
+            result = prime * result + ((query == null) ? 0 : query.hashCode());
+            result = prime * result + ((facets == null) ? 0 : facets.hashCode());
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (obj == null || getClass() != obj.getClass())
+                return false;
+            Key other = (Key) obj;
+            return classNames.equals(other.classNames) && indices.equals(other.indices) && Objects.equals(query, other.query)
+                    && Objects.equals(facets, other.facets);
+        }
+    }
+}
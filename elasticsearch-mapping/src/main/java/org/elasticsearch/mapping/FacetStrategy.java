@@ -0,0 +1,14 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Defines the available strategies to compute facets (aggregations) when filters are applied on the query.
+ */
+public enum FacetStrategy {
+    /** Default strategy, all filters are added to the query and no facet is computed for the filtered fields. */
+    EXCLUDE_FILTERED,
+    /**
+     * Filters on faceted fields are moved to the post filter of the request and each facet is computed in a filter aggregation of the other active
+     * filters so the counts of the selected facets are kept (multi-select faceting) in a single request.
+     */
+    POST_FILTER
+}
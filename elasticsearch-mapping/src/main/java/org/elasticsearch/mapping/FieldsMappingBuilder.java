@@ -15,9 +15,15 @@ import org.apache.commons.beanutils.PropertyUtils;
 import org.elasticsearch.annotation.*;
 import org.elasticsearch.annotation.query.*;
 import org.elasticsearch.mapping.parser.*;
+import org.elasticsearch.util.AnnotationScanner;
 import org.elasticsearch.util.MapUtil;
 import org.springframework.util.ClassUtils;
 
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -26,6 +32,19 @@ import lombok.extern.slf4j.Slf4j;
  */
 @Slf4j
 public class FieldsMappingBuilder {
+    /** Name of the catch-all field that replaces the _all field. */
+    public static final String ALL_FIELD = "all";
+    /** Name of the edge n-gram sub field of the all field. */
+    public static final String ALL_PREFIX_FIELD = "prefix";
+    /** Name of the edge n-gram analyzer (and filter) of the all prefix sub field added to the index settings. */
+    public static final String ALL_EDGE_NGRAM_ANALYZER = "all_edge_ngram";
+    public static final String ALL_EDGE_NGRAM_FILTER = "all_edge_ngram_filter";
+    /** Name of the search analyzer of the all prefix sub field: the edge n-gram analyzer without the n-gram filter. */
+    public static final String ALL_EDGE_NGRAM_SEARCH_ANALYZER = "all_edge_ngram_search";
+    /** Name of the keyword sub field added to analyzed fields that are faceted or sorted. */
+    public static final String KEYWORD_FIELD = "keyword";
+    /** Mapper with the default configuration used to check which properties are serialized (and so indexed). */
+    private static final ObjectMapper JSON_MAPPER = new ObjectMapper();
 
     /**
      * Parse fields from the given class to add properties mapping.
@@ -59,12 +78,35 @@ public class FieldsMappingBuilder {
                     indexable);
         }
         if (isAll != null) {
-            Map<String, String> fieldsDefinitionMap = new HashMap<String, String>();
+            Map<String, Object> fieldsDefinitionMap = new HashMap<String, Object>();
             fieldsDefinitionMap.put ("type", "text");
             if (!isAll.equals("")) {
                fieldsDefinitionMap.put ("analyzer", isAll);
             }
-            propertiesDefinitionMap.put ("all", fieldsDefinitionMap);
+            processAllPrefixes(clazz, fieldsDefinitionMap, isAll);
+            propertiesDefinitionMap.put (ALL_FIELD, fieldsDefinitionMap);
+        }
+    }
+
+    private void processAllPrefixes(Class<?> clazz, Map<String, Object> fieldsDefinitionMap, String analyser) {
+        ESAll esAll = AnnotationScanner.getAnnotation(ESAll.class, clazz);
+        if (esAll == null) {
+            return;
+        }
+        if (esAll.indexPrefixes()) {
+            // use elastic search default min and max chars.
+            fieldsDefinitionMap.put("index_prefixes", new HashMap<String, Object>());
+        }
+        if (esAll.indexPhrases()) {
+            fieldsDefinitionMap.put("index_phrases", true);
+        }
+        if (esAll.searchAsYouType()) {
+            Map<String, Object> prefixDefinitionMap = new HashMap<String, Object>();
+            prefixDefinitionMap.put("type", "text");
+            prefixDefinitionMap.put("analyzer", ALL_EDGE_NGRAM_ANALYZER);
+            // the searched text is tokenized as the indexed text but must not be split in n-grams.
+            prefixDefinitionMap.put("search_analyzer", ALL_EDGE_NGRAM_SEARCH_ANALYZER);
+            fieldsDefinitionMap.put("fields", MapUtil.getMap(ALL_PREFIX_FIELD, prefixDefinitionMap));
         }
     }
 
@@ -78,8 +120,7 @@ public class FieldsMappingBuilder {
             //processIdAnnotation(classDefinitionMap, esFieldName, indexable);
             processRoutingAnnotation(classDefinitionMap, esFieldName, indexable);
             processBoostAnnotation(classDefinitionMap, esFieldName, indexable);
-            // Timestamp field annotation
-            //processTimeStampAnnotation(classDefinitionMap, esFieldName, indexable);
+            processSourceExcludeAnnotation(classDefinitionMap, esFieldName, indexable);
         }
 
         processFetchContextAnnotation(fetchContexts, esFieldName, indexable);
@@ -110,6 +151,11 @@ public class FieldsMappingBuilder {
 
     private void processComplexOrArray(Class<?> clazz, List<IFacetBuilderHelper> facetFields, List<IFilterBuilderHelper> filteredFields, String pathPrefix,
             String nestedPrefix, Map<String, Object> propertiesDefinitionMap, Indexable indexable) {
+        if (indexable.getAnnotation(RangeField.class) != null) {
+            // min/max pair mapped as a range, the bounds are not processed as object properties.
+            processFieldAnnotation(RangeField.class, new RangeFieldAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
+            return;
+        }
         // mapping of a complex field
         if (indexable.isArrayOrCollection()) {
             Class<?> arrayType = indexable.getComponentType();
@@ -160,6 +206,50 @@ public class FieldsMappingBuilder {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private void processSourceExcludeAnnotation(Map<String, Object> classDefinitionMap, String esFieldName, Indexable indexable) {
+        if (indexable.getAnnotation(SourceExclude.class) == null) {
+            return;
+        }
+        Map<String, Object> sourceDefinition = (Map<String, Object>) classDefinitionMap.get("_source");
+        if (sourceDefinition == null) {
+            sourceDefinition = new HashMap<String, Object>();
+            classDefinitionMap.put("_source", sourceDefinition);
+        }
+        List<String> excludes = (List<String>) sourceDefinition.get("excludes");
+        if (excludes == null) {
+            excludes = new ArrayList<String>();
+            sourceDefinition.put("excludes", excludes);
+        }
+        excludes.add(esFieldName);
+    }
+
+    /**
+     * Warn when a fetch context includes a field that is excluded from the _source (see {@link SourceExclude}): the field is never returned.
+     *
+     * @param clazz The class that has been parsed.
+     * @param classDefinitionMap The definition of the class.
+     * @param fetchContexts The fetch contexts of the class.
+     */
+    @SuppressWarnings("unchecked")
+    public void checkSourceExcludes(Class<?> clazz, Map<String, Object> classDefinitionMap, Map<String, SourceFetchContext> fetchContexts) {
+        Map<String, Object> sourceDefinition = (Map<String, Object>) classDefinitionMap.get("_source");
+        List<String> excludes = sourceDefinition == null ? null : (List<String>) sourceDefinition.get("excludes");
+        if (excludes == null) {
+            return;
+        }
+        for (Map.Entry<String, SourceFetchContext> fetchContext : fetchContexts.entrySet()) {
+            for (String include : fetchContext.getValue().getIncludes()) {
+                for (String exclude : excludes) {
+                    if (include.equals(exclude) || include.startsWith(exclude + ".")) {
+                        log.warn("Field <" + include + "> is included in fetch context <" + fetchContext.getKey() + "> of <" + clazz.getName()
+                                + "> but is excluded from the _source.");
+                    }
+                }
+            }
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void processBoostAnnotation(Map<String, Object> classDefinitionMap, String esFieldName, Indexable indexable) {
         Boost boost = indexable.getAnnotation(Boost.class);
@@ -176,27 +266,6 @@ public class FieldsMappingBuilder {
         }
     }
 
-    @SuppressWarnings("unchecked")
-    private void processTimeStampAnnotation(Map<String, Object> classDefinitionMap, String esFieldName, Indexable indexable) {
-        TimeStamp timeStamp = indexable.getAnnotation(TimeStamp.class);
-        if (timeStamp != null) {
-            if (classDefinitionMap.containsKey("_timestamp")) {
-                log.warn("A TimeStamp annotation is defined on field <" + esFieldName + "> of <" + indexable.getDeclaringClassName()
-                        + "> but a boost has already be defined for <" + ((Map<String, Object>) classDefinitionMap.get("_timestamp")).get("name") + ">");
-            } else {
-                Map<String, Object> timeStampDefinition = new HashMap<String, Object>();
-                timeStampDefinition.put("enabled", true);
-                timeStampDefinition.put("path", indexable.getName());
-
-                if (!timeStamp.format().isEmpty()) {
-                    timeStampDefinition.put("format", timeStamp.format());
-                }
-
-                classDefinitionMap.put("_timestamp", timeStampDefinition);
-            }
-        }
-    }
-
     private void processFetchContextAnnotation(Map<String, SourceFetchContext> fetchContexts, String esFieldName, Indexable indexable) {
         FetchContext fetchContext = indexable.getAnnotation(FetchContext.class);
         if (fetchContext == null) {
@@ -236,10 +305,11 @@ public class FieldsMappingBuilder {
             }
             for (String path : paths) {
                 path = path.trim();
-                addFilter(classFilters, nestedPrefix, esFieldName, indexable, path, isAnalyzed(indexable, null));
+                addFilter(classFilters, nestedPrefix, esFieldName, indexable, path, isAnalyzed(indexable, null), termFilter);
                 for (String alternateFieldName : alternateFieldNames(indexable)) {
                     //addFilter(classFilters, nestedPrefix, alternateFieldName, indexable, path, isAnalyzed(indexable, alternateFieldName));
-                    addFilter(classFilters, nestedPrefix, esFieldName + "." + alternateFieldName, indexable, path, isAnalyzed(indexable, alternateFieldName));
+                    addFilter(classFilters, nestedPrefix, esFieldName + "." + alternateFieldName, indexable, path, isAnalyzed(indexable, alternateFieldName),
+                            termFilter);
                 }
             }
             return;
@@ -252,13 +322,13 @@ public class FieldsMappingBuilder {
     }
 
     private void addFilter(List<IFilterBuilderHelper> classFilters, String nestedPrefix, String esFieldName, Indexable indexable, String path,
-            boolean isAnalyzed) {
+            boolean isAnalyzed, TermFilter termFilter) {
         if (nestedPrefix != null) {
             esFieldName = esFieldName.substring(nestedPrefix.length() + 1);
         }
         String filterPath = getFilterPath(path, esFieldName);
 
-        classFilters.add(new TermsFilterBuilderHelper(isAnalyzed, nestedPrefix, filterPath));
+        classFilters.add(new TermsFilterBuilderHelper(isAnalyzed, false, nestedPrefix, filterPath, termFilter));
     }
 
     private void processFacetAnnotation(List<IFacetBuilderHelper> classFacets, List<IFilterBuilderHelper> classFilters, String esFieldName,
@@ -280,9 +350,11 @@ public class FieldsMappingBuilder {
             for (String path : paths) {
                 path = path.trim();
 
-                addAggregation(termsFacet, indexable, esFieldName, path, isAnalyzed(indexable, null), classFacets, classFilters);
+                addAggregation(termsFacet, indexable, esFieldName, path, isAnalyzed(indexable, null), hasKeywordSubField(indexable), classFacets,
+                        classFilters);
                 for (String alternateFieldName : alternateFieldNames(indexable)) {
-                    addAggregation(termsFacet, indexable, alternateFieldName, path, isAnalyzed(indexable, alternateFieldName), classFacets, classFilters);
+                    addAggregation(termsFacet, indexable, alternateFieldName, path, isAnalyzed(indexable, alternateFieldName), false, classFacets,
+                            classFilters);
                 }
             }
             return;
@@ -296,6 +368,17 @@ public class FieldsMappingBuilder {
                 log.warn("Field <" + esFieldName + "> already had a filter that will be replaced by the defined facet. Only a single one is allowed.");
             }
             classFilters.add(facetBuilderHelper);
+            return;
+        }
+        DateHistogramFacet dateHistogramFacet = indexable.getAnnotation(DateHistogramFacet.class);
+        if (dateHistogramFacet != null) {
+            IFacetBuilderHelper facetBuilderHelper = new DateHistogramAggregationBuilderHelper(null, esFieldName, dateHistogramFacet);
+            classFacets.add(facetBuilderHelper);
+            if (classFilters.contains(facetBuilderHelper)) {
+                classFilters.remove(facetBuilderHelper);
+                log.warn("Field <" + esFieldName + "> already had a filter that will be replaced by the defined facet. Only a single one is allowed.");
+            }
+            classFilters.add(facetBuilderHelper);
         }
     }
 
@@ -305,6 +388,10 @@ public class FieldsMappingBuilder {
 
     private boolean isAnalyzed(Indexable indexable, String name) {
         boolean isAnalysed = true;
+        if (name == null && indexable.getAnnotation(Normalizer.class) != null) {
+            // normalized keyword, values are processed by elastic search.
+            return false;
+        }
         StringFieldMulti multiAnnotation = indexable.getAnnotation(StringFieldMulti.class);
         if (multiAnnotation != null) {
             if (name == null) {
@@ -325,12 +412,22 @@ public class FieldsMappingBuilder {
         return isAnalysed;
     }
 
+    private boolean hasKeywordSubField(Indexable indexable) {
+        StringField stringField = indexable.getAnnotation(StringField.class);
+        StringFieldMulti multiAnnotation = indexable.getAnnotation(StringFieldMulti.class);
+        if (multiAnnotation != null) {
+            stringField = multiAnnotation.main();
+        }
+        return stringField != null && StringFieldAnnotationParser.needsKeywordSubField(stringField, indexable);
+    }
+
     private void addAggregation(TermsFacet termsFacet, Indexable indexable, String esFieldName, String path, boolean isAnalyzed,
-            List<IFacetBuilderHelper> classFacets, List<IFilterBuilderHelper> classFilters) {
+            boolean keywordSubField, List<IFacetBuilderHelper> classFacets, List<IFilterBuilderHelper> classFilters) {
         String nestedPath = indexable.getAnnotation(NestedObject.class) == null ? null : esFieldName;
         String filterPath = getFilterPath(path, esFieldName);
 
-        IFacetBuilderHelper facetBuilderHelper = new TermsAggregationBuilderHelper(isAnalyzed, nestedPath, filterPath, termsFacet);
+        IFacetBuilderHelper facetBuilderHelper = new TermsAggregationBuilderHelper(isAnalyzed, keywordSubField && path.isEmpty(), nestedPath, filterPath,
+                termsFacet);
         classFacets.add(facetBuilderHelper);
         if (classFilters.contains(facetBuilderHelper)) {
             classFilters.remove(facetBuilderHelper);
@@ -358,6 +455,7 @@ public class FieldsMappingBuilder {
         processFieldAnnotation(Analyser.class, new AnalyserAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
         processFieldAnnotation(IndexAnalyser.class, new IndexAnalyserAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
         processFieldAnnotation(SearchAnalyser.class, new SearchAnalyserAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
+        processFieldAnnotation(Normalizer.class, new NormalizerAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
 
         // Numeric field annotation
         processFieldAnnotation(NumberField.class, new NumberFieldAnnotationParser(), propertiesDefinitionMap, pathPrefix, nestedPrefix, indexable);
@@ -492,19 +590,128 @@ public class FieldsMappingBuilder {
 	return value;
     }
 
-    public String getTimeStamp (Class<?> clazz) throws IntrospectionException {
-       List<Indexable> indexables = getIndexables(clazz);
-       for (Indexable indexable : indexables) {
-            TimeStamp ts = indexable.getAnnotation(TimeStamp.class);
-            if (ts != null) {
-                return indexable.getName();
+    /**
+     * Get the names of the root fields of a class annotated with {@link Sortable}.
+     * 
+     * @param clazz The class for which to get the sortable fields.
+     * @return The names of the sortable fields.
+     * @throws IntrospectionException In case we fail to use reflexion on the given class.
+     */
+    public Set<String> getSortableFields(Class<?> clazz) throws IntrospectionException {
+        Set<String> sortableFields = new HashSet<String>();
+        if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class) {
+            sortableFields.addAll(getSortableFields(clazz.getSuperclass()));
+        }
+        for (Indexable indexable : getIndexables(clazz)) {
+            if (indexable.getAnnotation(Sortable.class) != null) {
+                sortableFields.add(indexable.getName());
             }
         }
+        return sortableFields;
+    }
 
+    /**
+     * Get the names of the root fields of a class that hold a single value (not an array, a collection or a map).
+     *
+     * @param clazz The class for which to get the single valued fields.
+     * @return The names of the single valued fields.
+     * @throws IntrospectionException In case we fail to use reflexion on the given class.
+     */
+    public Set<String> getSingleValuedFields(Class<?> clazz) throws IntrospectionException {
+        Set<String> singleValuedFields = new HashSet<String>();
         if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class) {
-           return getTimeStamp(clazz.getSuperclass());
+            singleValuedFields.addAll(getSingleValuedFields(clazz.getSuperclass()));
+        }
+        for (Indexable indexable : getIndexables(clazz)) {
+            if (!indexable.isArrayOrCollection() && !Map.class.isAssignableFrom(indexable.getType())) {
+                singleValuedFields.add(indexable.getName());
+            }
         }
+        return singleValuedFields;
+    }
 
+    /**
+     * Get the properties of a class (and its super classes) that have no mapping: elastic search maps them dynamically from the first indexed value.
+     * Properties that are not serialized by jackson (for example annotated with JsonIgnore) are never indexed and are not reported.
+     *
+     * @param clazz The class.
+     * @param classDefinitionMap The definition of the class with the properties parsed by
+     *            {@link #parseFieldMappings(Class, Map, List, List, Map, String, String, String)}.
+     * @return The names of the properties without mapping.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     */
+    public List<String> getUnmappedFields(Class<?> clazz, Map<String, Object> classDefinitionMap) throws IntrospectionException {
+        List<String> unmappedFields = new ArrayList<String>();
+        if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class) {
+            unmappedFields.addAll(getUnmappedFields(clazz.getSuperclass(), classDefinitionMap));
+        }
+        Map<?, ?> properties = (Map<?, ?>) classDefinitionMap.get("properties");
+        Set<String> serializedProperties = getSerializedProperties(clazz);
+        for (Indexable indexable : getIndexables(clazz)) {
+            if ((properties == null || !properties.containsKey(indexable.getName())) && !unmappedFields.contains(indexable.getName())
+                    && serializedProperties.contains(indexable.getName())) {
+                unmappedFields.add(indexable.getName());
+            }
+        }
+        return unmappedFields;
+    }
+
+    private Set<String> getSerializedProperties(Class<?> clazz) {
+        SerializationConfig config = JSON_MAPPER.getSerializationConfig();
+        BeanDescription beanDescription = config.introspect(JSON_MAPPER.constructType(clazz));
+        // class level ignorals (JsonIgnoreProperties) are applied by the serializer, not by the introspection.
+        Set<String> ignored = config.getDefaultPropertyIgnorals(clazz, beanDescription.getClassInfo()).findIgnoredForSerialization();
+        Set<String> serializedProperties = new HashSet<String>();
+        for (BeanPropertyDefinition property : beanDescription.findProperties()) {
+            if (property.couldSerialize() && !ignored.contains(property.getName())) {
+                serializedProperties.add(property.getInternalName());
+            }
+        }
+        return serializedProperties;
+    }
+
+    /**
+     * Get the name of the field annotated with {@link TimeStamp} in a class or its super classes.
+     *
+     * @param clazz The class.
+     * @return The name of the timestamp field or null if the class has no timestamp.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     */
+    public String getTimeStamp(Class<?> clazz) throws IntrospectionException {
+        Indexable indexable = getTimeStampIndexable(clazz);
+        return indexable == null ? null : indexable.getName();
+    }
+
+    /**
+     * Get the time partitioning of the indices of a class, defined by its {@link TimeStamp} field.
+     *
+     * @param clazz The class.
+     * @return The time partitioning of the class, {@link TimePartition#NONE} if the class has no timestamp.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     */
+    public TimePartition getTimePartition(Class<?> clazz) throws IntrospectionException {
+        Indexable indexable = getTimeStampIndexable(clazz);
+        if (indexable == null) {
+            return TimePartition.NONE;
+        }
+        TimePartition partition = indexable.getAnnotation(TimeStamp.class).partition();
+        Class<?> type = ClassUtils.resolvePrimitiveIfNecessary(indexable.getType());
+        if (!TimePartition.NONE.equals(partition) && type != Date.class && type != Long.class) {
+            throw new MappingException("TimeStamp field <" + indexable.getName() + "> of <" + indexable.getDeclaringClassName()
+                    + "> must be a date or epoch milliseconds to partition the indices.");
+        }
+        return partition;
+    }
+
+    private Indexable getTimeStampIndexable(Class<?> clazz) throws IntrospectionException {
+        for (Indexable indexable : getIndexables(clazz)) {
+            if (indexable.getAnnotation(TimeStamp.class) != null) {
+                return indexable;
+            }
+        }
+        if (clazz.getSuperclass() != null && clazz.getSuperclass() != Object.class) {
+            return getTimeStampIndexable(clazz.getSuperclass());
+        }
         return null;
     }
 }
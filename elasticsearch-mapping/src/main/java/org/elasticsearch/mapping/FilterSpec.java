@@ -0,0 +1,211 @@
+package org.elasticsearch.mapping;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed value of a filter on a field. Numeric and date ranges are kept as primitives so the {@link IFilterBuilderHelper} can build the query without
+ * encoding and parsing the bounds as strings. The string values of the {@link QueryHelper} filters map are adapted as {@link Kind#VALUES} specs that are
+ * interpreted by the helpers as before (terms, "from - to" ranges etc.).
+ */
+public final class FilterSpec {
+    private static final FilterSpec EXISTS = new FilterSpec(Kind.EXISTS, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Long.MIN_VALUE,
+            Long.MAX_VALUE);
+    private static final FilterSpec MISSING = new FilterSpec(Kind.MISSING, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Long.MIN_VALUE,
+            Long.MAX_VALUE);
+
+    /**
+     * Kind of filter.
+     */
+    public enum Kind {
+        /** String values interpreted by the filter helper of the field (legacy string filters). */
+        VALUES,
+        /** Exact terms. */
+        TERMS,
+        /** Numeric range, from included and to excluded. */
+        RANGE,
+        /** Date range in epoch milliseconds, from included and to excluded. */
+        DATE_RANGE,
+        /** The field has a value. */
+        EXISTS,
+        /** The field has no value. */
+        MISSING
+    }
+
+    private final Kind kind;
+    private final String[] values;
+    private final double from;
+    private final double to;
+    private final long fromMillis;
+    private final long toMillis;
+
+    private FilterSpec(Kind kind, String[] values, double from, double to, long fromMillis, long toMillis) {
+        this.kind = kind;
+        this.values = values;
+        this.from = from;
+        this.to = to;
+        this.fromMillis = fromMillis;
+        this.toMillis = toMillis;
+    }
+
+    /**
+     * String values interpreted by the filter helper of the field, as in the string filters map.
+     *
+     * @param values The values of the filter.
+     * @return The filter spec.
+     */
+    public static FilterSpec values(String... values) {
+        return new FilterSpec(Kind.VALUES, sorted(values), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Filter on exact terms (any of the terms matches).
+     *
+     * @param terms The terms.
+     * @return The filter spec.
+     */
+    public static FilterSpec terms(String... terms) {
+        return new FilterSpec(Kind.TERMS, sorted(terms), Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Filter on a numeric range.
+     *
+     * @param from The lower bound (included), {@link Double#NEGATIVE_INFINITY} for an unbounded range.
+     * @param to The upper bound (excluded), {@link Double#POSITIVE_INFINITY} for an unbounded range.
+     * @return The filter spec.
+     */
+    public static FilterSpec range(double from, double to) {
+        return new FilterSpec(Kind.RANGE, null, from, to, Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    /**
+     * Filter on a date range.
+     *
+     * @param fromMillis The lower bound (included) in epoch milliseconds, {@link Long#MIN_VALUE} for an unbounded range.
+     * @param toMillis The upper bound (excluded) in epoch milliseconds, {@link Long#MAX_VALUE} for an unbounded range.
+     * @return The filter spec.
+     */
+    public static FilterSpec dateRange(long fromMillis, long toMillis) {
+        return new FilterSpec(Kind.DATE_RANGE, null, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, fromMillis, toMillis);
+    }
+
+    /**
+     * Filter on a date range.
+     *
+     * @param from The lower bound (included) or null for an unbounded range.
+     * @param to The upper bound (excluded) or null for an unbounded range.
+     * @return The filter spec.
+     */
+    public static FilterSpec dateRange(Instant from, Instant to) {
+        return dateRange(from == null ? Long.MIN_VALUE : from.toEpochMilli(), to == null ? Long.MAX_VALUE : to.toEpochMilli());
+    }
+
+    /**
+     * Filter the documents that have a value for the field.
+     *
+     * @return The filter spec.
+     */
+    public static FilterSpec exists() {
+        return EXISTS;
+    }
+
+    /**
+     * Filter the documents that have no value for the field.
+     *
+     * @return The filter spec.
+     */
+    public static FilterSpec missing() {
+        return MISSING;
+    }
+
+    /**
+     * Adapt a string filters map to filter specs.
+     *
+     * @param filters The string filters by field name (may be null).
+     * @return The filter specs by field name or null if the given filters are null.
+     */
+    public static Map<String, FilterSpec> fromStrings(Map<String, String[]> filters) {
+        if (filters == null) {
+            return null;
+        }
+        Map<String, FilterSpec> filterSpecs = new HashMap<String, FilterSpec>(filters.size() * 2);
+        for (Map.Entry<String, String[]> filter : filters.entrySet()) {
+            filterSpecs.put(filter.getKey(), values(filter.getValue()));
+        }
+        return filterSpecs;
+    }
+
+    /**
+     * Sort a copy of the values so the generated query does not depend on the order of the values provided by the caller (and so can be used as a facet
+     * cache key).
+     */
+    private static String[] sorted(String[] values) {
+        if (values == null || values.length < 2) {
+            return values;
+        }
+        String[] sorted = Arrays.copyOf(values, values.length);
+        Arrays.sort(sorted, Comparator.nullsFirst(Comparator.naturalOrder()));
+        return sorted;
+    }
+
+    /**
+     * Split a multi-valued filter in a filter for every value (used when all the values must match).
+     *
+     * @return A filter spec for every value, or this filter spec if it is not multi-valued.
+     */
+    public List<FilterSpec> split() {
+        if ((kind != Kind.VALUES && kind != Kind.TERMS) || values == null || values.length < 2) {
+            return Collections.singletonList(this);
+        }
+        FilterSpec[] specs = new FilterSpec[values.length];
+        for (int i = 0; i < values.length; i++) {
+            specs[i] = new FilterSpec(kind, new String[] { values[i] }, from, to, fromMillis, toMillis);
+        }
+        return Arrays.asList(specs);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public String[] getValues() {
+        return values;
+    }
+
+    public double getFrom() {
+        return from;
+    }
+
+    public double getTo() {
+        return to;
+    }
+
+    public long getFromMillis() {
+        return fromMillis;
+    }
+
+    public long getToMillis() {
+        return toMillis;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+        case VALUES:
+        case TERMS:
+            return kind + Arrays.toString(values);
+        case RANGE:
+            return kind + "[" + from + " - " + to + "]";
+        case DATE_RANGE:
+            return kind + "[" + fromMillis + " - " + toMillis + "]";
+        default:
+            return kind.toString();
+        }
+    }
+}
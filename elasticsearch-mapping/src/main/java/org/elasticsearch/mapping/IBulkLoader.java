@@ -0,0 +1,13 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Load documents in a {@link BulkLoadSession} (see {@link IndexManager#bulkLoad(Class, IBulkLoader, int, String...)}).
+ */
+public interface IBulkLoader {
+    /**
+     * Add the documents to load to the session.
+     *
+     * @param session The bulk load session.
+     */
+    void load(BulkLoadSession session);
+}
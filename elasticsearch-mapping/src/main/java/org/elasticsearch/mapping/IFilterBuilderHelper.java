@@ -34,6 +34,32 @@ public interface IFilterBuilderHelper {
      */
     QueryBuilder buildFilter(String key, String... value);
 
+    /**
+     * Build a filter from a typed filter spec. String values specs are processed as the string filters, other kinds must be supported by the helper.
+     * 
+     * @param key The key as String.
+     * @param filterSpec The typed filter.
+     * @return A filter builder.
+     */
+    default QueryBuilder buildFilter(String key, FilterSpec filterSpec) {
+        if (FilterSpec.Kind.VALUES.equals(filterSpec.getKind())) {
+            return buildFilter(key, filterSpec.getValues());
+        }
+        throw new IllegalArgumentException("Filter <" + filterSpec + "> is not supported on field <" + key + ">.");
+    }
+
+    /**
+     * Build a filter from a typed filter spec, huge terms filters may be stored in the terms lookup store.
+     * 
+     * @param key The key as String.
+     * @param filterSpec The typed filter.
+     * @param termsLookupStore The store for terms lookup documents, may be null.
+     * @return A filter builder.
+     */
+    default QueryBuilder buildFilter(String key, FilterSpec filterSpec, TermsLookupStore termsLookupStore) {
+        return buildFilter(key, filterSpec);
+    }
+
     /**
      * Build a query builder.
      * 
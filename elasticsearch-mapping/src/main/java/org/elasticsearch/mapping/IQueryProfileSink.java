@@ -0,0 +1,13 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Receive the profiles of the queries executed through {@link QueryHelper} when profiling is enabled.
+ */
+public interface IQueryProfileSink {
+    /**
+     * Handle the profile of an executed query.
+     *
+     * @param queryProfile The compact profile of the query along with the generated query json.
+     */
+    void profile(QueryProfile queryProfile);
+}
@@ -0,0 +1,325 @@
+package org.elasticsearch.mapping;
+
+import java.beans.IntrospectionException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Resource;
+
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse;
+import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.cluster.metadata.AliasMetaData;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.ReindexAction;
+import org.elasticsearch.index.reindex.ReindexRequestBuilder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.carrotsearch.hppc.cursors.ObjectObjectCursor;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Manage the indices of the mapped classes.
+ */
+@Component
+@Slf4j
+public class IndexManager {
+    private static final String REFRESH_INTERVAL = "index.refresh_interval";
+    private static final String NUMBER_OF_REPLICAS = "index.number_of_replicas";
+    private static final String WRITE_BLOCK = "index.blocks.write";
+    private static final int DEFAULT_BULK_SIZE = 1000;
+    private static final String TYPE = "_doc";
+    private static final String VERSION_SEPARATOR = "_v";
+
+    @Resource
+    private ElasticSearchClient esClient;
+    @Resource
+    private MappingBuilder mappingBuilder;
+    @Resource
+    private FacetCache facetCache;
+
+    private int bulkSize = DEFAULT_BULK_SIZE;
+
+    /**
+     * Load documents of a class in bulk. During the load the refresh and the replicas of the indices are disabled, then their previous settings are
+     * restored (even if the load fails), the indices are refreshed, optionally force merged and the call waits for the green status of the indices.
+     *
+     * @param clazz The class of the loaded documents (used as the metrics tag).
+     * @param loader The loader that adds the documents to the session.
+     * @param maxNumSegments The number of segments to force merge the indices to after the load, 0 or less to skip the force merge.
+     * @param indices The indices to load, the first one is the default index of the session. Defaults to the index type of the class (see
+     *            {@link MappingBuilder#indexTypeFromClass(Class)}).
+     * @return The closed bulk load session with the number of loaded and failed documents.
+     */
+    public BulkLoadSession bulkLoad(Class<?> clazz, IBulkLoader loader, int maxNumSegments, String... indices) {
+        String[] targetIndices = indices == null || indices.length == 0 ? new String[] { MappingBuilder.indexTypeFromClass(clazz) } : indices;
+        String tag = clazz.getSimpleName();
+        Map<String, Settings> previousSettings = suspendRefreshAndReplicas(tag, targetIndices);
+        BulkLoadSession session = new BulkLoadSession(esClient, tag, targetIndices[0], bulkSize);
+        try {
+            loader.load(session);
+            session.flush();
+        } finally {
+            restoreSettings(tag, previousSettings);
+            esClient.execute("refresh", tag, esClient.getClient().admin().indices().prepareRefresh(targetIndices));
+            if (maxNumSegments > 0) {
+                esClient.execute("force_merge", tag,
+                        esClient.getClient().admin().indices().prepareForceMerge(targetIndices).setMaxNumSegments(maxNumSegments));
+            }
+            invalidateFacets(tag, targetIndices);
+            esClient.waitForGreenStatus(targetIndices);
+        }
+        log.info("Bulk loaded <{}> documents of <{}> in <{}> (<{}> failures).", session.getIndexed(), clazz.getName(), String.join(",", targetIndices),
+                session.getFailed());
+        return session;
+    }
+
+    /**
+     * Recreate the index of a class behind an alias without downtime: a new index &lt;alias&gt;_v&lt;n&gt; is created from the current mapping and settings of
+     * the class, the documents of the index currently behind the alias are copied (sliced reindex), then writes to the source indices are blocked, a
+     * catch-up pass copies the documents written during the copy and the alias is atomically moved to the new index. Searches done through the alias
+     * (for example with {@link QueryHelper.IFilterableQueryBuilderHelper#prepareSearch(String...)}) are not affected by the cutover, writes are rejected
+     * during the catch-up pass.
+     *
+     * The documents are copied with their version (external versioning) so the catch-up pass only overwrites the documents updated since the first pass;
+     * documents deleted during the copy are not deleted from the new index. If the copy or the cutover fails, the write block is removed and the new index
+     * deleted. A concrete index named as the alias is replaced by the alias (and deleted) in the same atomic aliases update, previous versioned indices are
+     * kept (writable) so the alias can be moved back. Classes with a disabled _source or with fields excluded from the _source cannot be reindexed as
+     * their documents cannot be rebuilt from the _source.
+     *
+     * @param clazz The class of the documents.
+     * @param alias The alias used to access the index of the class.
+     * @param slices The number of slices of the copy (1 for no parallelism).
+     * @return The name of the new index.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     * @throws IOException In case the mapping or the settings of the class cannot be generated.
+     */
+    public String reindex(Class<?> clazz, String alias, int slices) throws IntrospectionException, IOException {
+        if (mappingBuilder.isSourceDisabled(clazz)) {
+            throw new IllegalArgumentException("Documents of <" + clazz.getName() + "> are indexed without _source and cannot be reindexed.");
+        }
+        if (mappingBuilder.hasSourceExcludes(clazz)) {
+            throw new IllegalArgumentException("Documents of <" + clazz.getName() + "> have fields excluded from the _source and cannot be reindexed.");
+        }
+        String tag = clazz.getSimpleName();
+        String[] currentIndices = getAliasedIndices(alias);
+        boolean concreteIndex = currentIndices.length == 0 && esClient.getClient().admin().indices().prepareExists(alias).get().isExists();
+        String[] sourceIndices = concreteIndex ? new String[] { alias } : currentIndices;
+
+        String newIndex = alias + VERSION_SEPARATOR + nextVersion(alias);
+        createIndex(clazz, tag, newIndex);
+        boolean writeBlocked = false;
+        try {
+            if (sourceIndices.length > 0) {
+                copy(tag, sourceIndices, newIndex, slices);
+                // documents created or updated during the first pass, no more writes can happen until the alias is moved.
+                updateSettings(tag, sourceIndices, Settings.builder().put(WRITE_BLOCK, true).build());
+                writeBlocked = true;
+                copy(tag, sourceIndices, newIndex, slices);
+            }
+
+            IndicesAliasesRequestBuilder aliasesRequestBuilder = esClient.getClient().admin().indices().prepareAliases();
+            if (concreteIndex) {
+                // the alias cannot be added while an index has the same name, the index is deleted only if the whole update succeeds.
+                aliasesRequestBuilder.removeIndex(alias);
+            } else if (currentIndices.length > 0) {
+                aliasesRequestBuilder.removeAlias(currentIndices, alias);
+            }
+            aliasesRequestBuilder.addAlias(newIndex, alias);
+            esClient.execute("update_aliases", tag, aliasesRequestBuilder);
+        } catch (RuntimeException e) {
+            log.error("Failed to reindex <{}> to <{}>, alias <{}> is left unchanged.", String.join(",", sourceIndices), newIndex, alias);
+            if (writeBlocked) {
+                updateSettings(tag, sourceIndices, Settings.builder().putNull(WRITE_BLOCK).build());
+            }
+            esClient.execute("delete_index", tag, esClient.getClient().admin().indices().prepareDelete(newIndex));
+            throw e;
+        }
+        if (writeBlocked && !concreteIndex) {
+            // previous indices are kept to move the alias back.
+            updateSettings(tag, sourceIndices, Settings.builder().putNull(WRITE_BLOCK).build());
+        }
+        invalidateFacets(tag, alias);
+        log.info("Alias <{}> of <{}> moved from <{}> to <{}>.", alias, clazz.getName(), String.join(",", sourceIndices), newIndex);
+        return newIndex;
+    }
+
+    /**
+     * Install the index templates generated by the mapping builder (see {@link MappingBuilder#getIndexTemplates()}), to be called once at startup after
+     * the mapping builder is initialized. The indices matching the templates are then created by elastic search on their first write.
+     */
+    public void putIndexTemplates() {
+        for (IndexTemplateSource indexTemplate : mappingBuilder.getIndexTemplates()) {
+            putIndexTemplate(indexTemplate);
+        }
+    }
+
+    /**
+     * Install the index template of a time partitioned class (see {@link TimePartition}) for a given base index: the partitions
+     * &lt;baseIndex&gt;-&lt;period&gt; are created on their first write with the mapping and settings of the class and share the base index as alias so
+     * they can be searched together. Searches on the base index with a date range on the timestamp are restricted to the overlapping partitions.
+     *
+     * @param clazz The class of the documents.
+     * @param baseIndex The base index of the partitions, must not be an existing index.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     * @throws IOException In case the mapping or the settings of the class cannot be generated.
+     */
+    public void putTimePartitionTemplate(Class<?> clazz, String baseIndex) throws IntrospectionException, IOException {
+        if (TimePartition.NONE.equals(mappingBuilder.getTimePartition(clazz.getName()))) {
+            throw new IllegalArgumentException("Indices of <" + clazz.getName() + "> are not partitioned by time.");
+        }
+        putIndexTemplate(mappingBuilder.buildIndexTemplate(clazz, baseIndex, new String[] { TimePartitions.indexPattern(baseIndex) },
+                new String[] { baseIndex }, 0));
+        mappingBuilder.registerTimePartitionBaseIndex(clazz.getName(), baseIndex);
+    }
+
+    private void putIndexTemplate(IndexTemplateSource indexTemplate) {
+        esClient.execute("put_template", indexTemplate.getName(), esClient.getClient().admin().indices().preparePutTemplate(indexTemplate.getName())
+                .setSource(indexTemplate.getSource().getBytes(StandardCharsets.UTF_8), XContentType.JSON));
+        log.info("Index template <{}> installed.", indexTemplate.getName());
+    }
+
+    /**
+     * Get the index to which a document must be written: the partition of its timestamp for time partitioned classes, the base index otherwise. The
+     * facet cache must be invalidated for both the written partition and the base index.
+     *
+     * @param clazz The class of the document.
+     * @param baseIndex The base index of the class.
+     * @param timestampMillis The timestamp of the document in epoch milliseconds.
+     * @return The index to write the document to.
+     */
+    public String getWriteIndex(Class<?> clazz, String baseIndex, long timestampMillis) {
+        return TimePartitions.indexName(baseIndex, mappingBuilder.getTimePartition(clazz.getName()), timestampMillis);
+    }
+
+    /**
+     * Get the indices behind an alias.
+     *
+     * @param alias The alias.
+     * @return The indices that have the alias (empty if the alias does not exist).
+     */
+    public String[] getAliasedIndices(String alias) {
+        List<String> indices = new ArrayList<String>();
+        for (ObjectObjectCursor<String, List<AliasMetaData>> cursor : esClient.getClient().admin().indices().prepareGetAliases(alias).get().getAliases()) {
+            if (!cursor.value.isEmpty()) {
+                indices.add(cursor.key);
+            }
+        }
+        return indices.toArray(new String[indices.size()]);
+    }
+
+    /**
+     * The facet cache is keyed on the searched names, the written indices are resolved to their concrete indices and aliases.
+     */
+    private void invalidateFacets(String tag, String... indices) {
+        if (!facetCache.isEnabled()) {
+            return;
+        }
+        Set<String> names = new HashSet<String>(Arrays.asList(indices));
+        GetIndexResponse response = esClient.execute("get_index", tag,
+                esClient.getClient().admin().indices().prepareGetIndex().addIndices(indices).setIndicesOptions(IndicesOptions.lenientExpandOpen()));
+        names.addAll(Arrays.asList(response.getIndices()));
+        for (ObjectObjectCursor<String, List<AliasMetaData>> cursor : response.getAliases()) {
+            for (AliasMetaData aliasMetaData : cursor.value) {
+                names.add(aliasMetaData.alias());
+            }
+        }
+        facetCache.invalidate(names.toArray(new String[names.size()]));
+    }
+
+    private int nextVersion(String alias) {
+        Pattern versionPattern = Pattern.compile(Pattern.quote(alias + VERSION_SEPARATOR) + "(\\d+)");
+        int version = 0;
+        for (String index : esClient.getClient().admin().indices().prepareGetIndex().addIndices(alias + VERSION_SEPARATOR + "*").get().getIndices()) {
+            Matcher matcher = versionPattern.matcher(index);
+            if (matcher.matches()) {
+                version = Math.max(version, Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return version + 1;
+    }
+
+    private void createIndex(Class<?> clazz, String tag, String index) throws IntrospectionException, IOException {
+        CreateIndexRequestBuilder createIndexRequestBuilder = esClient.getClient().admin().indices().prepareCreate(index).addMapping(TYPE,
+                mappingBuilder.getMapping(clazz), XContentType.JSON);
+        String settings = mappingBuilder.getIndexSettings(clazz);
+        if (settings != null) {
+            createIndexRequestBuilder.setSettings(settings, XContentType.JSON);
+        }
+        esClient.execute("create_index", tag, createIndexRequestBuilder);
+        // the copy only needs the primary shards, replicas are recovered in the background.
+        esClient.execute("cluster_health", tag,
+                esClient.getClient().admin().cluster().prepareHealth(index).setWaitForYellowStatus().setTimeout(TimeValue.timeValueSeconds(30)));
+    }
+
+    private void copy(String tag, String[] sourceIndices, String destinationIndex, int slices) {
+        ReindexRequestBuilder reindexRequestBuilder = new ReindexRequestBuilder(esClient.getClient(), ReindexAction.INSTANCE).source(sourceIndices)
+                .destination(destinationIndex).abortOnVersionConflict(false).refresh(true);
+        reindexRequestBuilder.destination().setVersionType(VersionType.EXTERNAL);
+        reindexRequestBuilder.setSlices(Math.max(1, slices));
+        BulkByScrollResponse response = esClient.execute("reindex", tag, reindexRequestBuilder);
+        if (!response.getBulkFailures().isEmpty() || !response.getSearchFailures().isEmpty()) {
+            throw new IllegalStateException("Failed to copy <" + String.join(",", sourceIndices) + "> to <" + destinationIndex + ">: "
+                    + response.getBulkFailures() + response.getSearchFailures());
+        }
+        log.debug("Copied <{}> documents (<{}> created, <{}> updated) from <{}> to <{}>.", response.getTotal(), response.getCreated(),
+                response.getUpdated(), String.join(",", sourceIndices), destinationIndex);
+    }
+
+    private Map<String, Settings> suspendRefreshAndReplicas(String tag, String[] indices) {
+        GetSettingsResponse response = esClient.execute("get_settings", tag,
+                esClient.getClient().admin().indices().prepareGetSettings(indices).setNames(REFRESH_INTERVAL, NUMBER_OF_REPLICAS));
+        // the settings are keyed by concrete index, the given indices may be aliases or patterns.
+        Map<String, Settings> previousSettings = new HashMap<String, Settings>();
+        for (ObjectObjectCursor<String, Settings> cursor : response.getIndexToSettings()) {
+            previousSettings.put(cursor.key, cursor.value == null ? Settings.EMPTY : cursor.value);
+        }
+        updateSettings(tag, previousSettings.keySet().toArray(new String[previousSettings.size()]),
+                Settings.builder().put(REFRESH_INTERVAL, "-1").put(NUMBER_OF_REPLICAS, 0).build());
+        return previousSettings;
+    }
+
+    private void restoreSettings(String tag, Map<String, Settings> previousSettings) {
+        for (Map.Entry<String, Settings> entry : previousSettings.entrySet()) {
+            Settings.Builder settings = Settings.builder();
+            for (String key : new String[] { REFRESH_INTERVAL, NUMBER_OF_REPLICAS }) {
+                String value = entry.getValue().get(key);
+                // settings that were not set are reset to the elastic search default.
+                if (value == null) {
+                    settings.putNull(key);
+                } else {
+                    settings.put(key, value);
+                }
+            }
+            updateSettings(tag, new String[] { entry.getKey() }, settings.build());
+        }
+    }
+
+    private void updateSettings(String tag, String[] indices, Settings settings) {
+        esClient.execute("update_settings", tag, esClient.getClient().admin().indices().prepareUpdateSettings(indices).setSettings(settings));
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.bulk_size']}")
+    public void setBulkSize(final String bulkSize) {
+        if (bulkSize != null && !bulkSize.trim().isEmpty()) {
+            this.bulkSize = Integer.parseInt(bulkSize.trim());
+        }
+    }
+}
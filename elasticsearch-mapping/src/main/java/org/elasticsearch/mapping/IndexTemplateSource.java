@@ -0,0 +1,29 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Index template generated by the {@link MappingBuilder} for a class: the name of the template and its json source (index patterns, order, settings,
+ * mappings and aliases).
+ */
+public final class IndexTemplateSource {
+    private final String name;
+    private final String source;
+
+    /**
+     * Create an index template source.
+     *
+     * @param name The name of the template.
+     * @param source The json source of the template.
+     */
+    public IndexTemplateSource(String name, String source) {
+        this.name = name;
+        this.source = source;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getSource() {
+        return source;
+    }
+}
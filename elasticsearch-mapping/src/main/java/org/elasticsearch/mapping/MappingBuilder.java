@@ -4,10 +4,19 @@ import java.beans.IntrospectionException;
 import java.io.IOException;
 import java.lang.reflect.Modifier;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import org.elasticsearch.annotation.ESAll;
+import org.elasticsearch.annotation.DynamicTemplate;
 import org.elasticsearch.annotation.ESObject;
 import org.elasticsearch.annotation.IndexAnalyserDefinition;
+import org.elasticsearch.annotation.IndexNormalizerDefinition;
+import org.elasticsearch.annotation.IndexSettings;
+import org.elasticsearch.annotation.IndexTemplate;
+import org.elasticsearch.annotation.Normalizer;
+import org.elasticsearch.annotation.SourceExclude;
+import org.elasticsearch.annotation.TimeStamp;
 import org.elasticsearch.annotation.TypeName;
 import com.google.common.collect.Maps;
 import org.apache.commons.lang3.ArrayUtils;
@@ -22,14 +31,24 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * Helps to parse the ES annotations.
  *
  * @author luc boutier
  */
+@Slf4j
 @Component
 @Scope("singleton")
 public class MappingBuilder {
+    /**
+     * Types whose doc values are the indexed values: normalized keywords, half and scaled floats are altered when indexed and multiple values come back
+     * sorted and deduplicated, such fields are fetched from the _source or stored fields.
+     */
+    private static final Set<String> EXACT_DOC_VALUES_TYPES = new HashSet<String>(Arrays.asList("keyword", "long", "integer", "short", "byte", "double",
+            "float", "date", "boolean"));
+
     private FieldsMappingBuilder fieldsMappingBuilder = new FieldsMappingBuilder();
 
     private Map<String, String> classesMappings = new HashMap<String, String>();
@@ -39,6 +58,19 @@ public class MappingBuilder {
     private Map<String, List<IFilterBuilderHelper>> filtersByClassName = new HashMap<String, List<IFilterBuilderHelper>>();
     private Map<String, List<IFacetBuilderHelper>> facetByClassName = new HashMap<String, List<IFacetBuilderHelper>>();
     private Map<String, Map<String, SourceFetchContext>> fetchSourceContextByClass = new HashMap<String, Map<String, SourceFetchContext>>();
+    private Map<String, Set<String>> keywordSubFieldsByClassName = new HashMap<String, Set<String>>();
+    private Map<String, MappingOptimizer.Report> optimizationReportByClassName = new HashMap<String, MappingOptimizer.Report>();
+    private Map<String, Set<String>> storedFieldsByClassName = new HashMap<String, Set<String>>();
+    private Map<String, Set<String>> docValueFieldsByClassName = new HashMap<String, Set<String>>();
+    private Map<String, Map<String, Boolean>> indexSortByClassName = new HashMap<String, Map<String, Boolean>>();
+    private Set<String> sourceDisabledClassNames = new HashSet<String>();
+    private Set<String> sourceExcludesClassNames = new HashSet<String>();
+    private Map<String, TimePartition> timePartitionByClassName = new HashMap<String, TimePartition>();
+    private Map<String, String> timeStampFieldByClassName = new HashMap<String, String>();
+    private Map<String, Set<String>> timePartitionBaseIndicesByClassName = new ConcurrentHashMap<String, Set<String>>();
+    private Map<String, IndexTemplateSource> indexTemplatesByClassName = new HashMap<String, IndexTemplateSource>();
+    private Map<String, List<String>> dynamicFieldsByClassName = new HashMap<String, List<String>>();
+    private Map<String, ResolvedFetchContext> resolvedFetchContexts = new ConcurrentHashMap<String, ResolvedFetchContext>();
 
     /**
      * Helper to return a valid index type from a class. Currently uses clazz.getSimpleName().toLowerCase();
@@ -161,6 +193,249 @@ public class MappingBuilder {
         return fetchSourceByContext.get(fetchContext);
     }
 
+    /**
+     * Get the fields to fetch for a fetch context over the given classes. The context is resolved on first use and then shared by all the queries.
+     *
+     * @param classes The classes for which to get the fetch context (null elements are ignored).
+     * @param fetchContext The fetch context for which to get the fields.
+     * @return The resolved fetch context, includes and excludes are null if no context match the given classes and fetch context key.
+     */
+    public ResolvedFetchContext getFetchSource(Class<?>[] classes, String fetchContext) {
+        StringBuilder key = new StringBuilder(fetchContext);
+        for (Class<?> clazz : classes) {
+            if (clazz != null) {
+                key.append('|').append(clazz.getName());
+            }
+        }
+        return this.resolvedFetchContexts.computeIfAbsent(key.toString(), k -> resolveFetchContext(classes, fetchContext));
+    }
+
+    /**
+     * Check if the _source of a class is disabled (see {@link ESObject#source()}).
+     *
+     * @param clazz The class.
+     * @return True if the documents of the class are indexed without _source.
+     */
+    public boolean isSourceDisabled(Class<?> clazz) {
+        return this.sourceDisabledClassNames.contains(clazz.getName());
+    }
+
+    /**
+     * Check if fields of a class are excluded from the _source (see {@link SourceExclude}).
+     *
+     * @param clazz The class.
+     * @return True if the _source of the documents of the class does not contain all the indexed fields.
+     */
+    public boolean hasSourceExcludes(Class<?> clazz) {
+        return this.sourceExcludesClassNames.contains(clazz.getName());
+    }
+
+    /**
+     * Get the stored fields to fetch by default for the given classes: when the _source of all the classes is disabled (see {@link ESObject#source()})
+     * the documents can only be retrieved from their stored fields.
+     *
+     * @param classes The classes for which to get the stored fields (null elements are ignored).
+     * @return The stored fields of all the classes or null if the _source of one of the classes is enabled.
+     */
+    public String[] getSourceLessStoredFields(Class<?>[] classes) {
+        if (classes == null) {
+            return null;
+        }
+        Set<String> storedFields = new LinkedHashSet<String>();
+        for (Class<?> clazz : classes) {
+            if (clazz == null) {
+                continue;
+            }
+            if (!this.sourceDisabledClassNames.contains(clazz.getName())) {
+                return null;
+            }
+            storedFields.addAll(this.storedFieldsByClassName.get(clazz.getName()));
+        }
+        return toArray(storedFields);
+    }
+
+    private ResolvedFetchContext resolveFetchContext(Class<?>[] classes, String fetchContext) {
+        Set<String> includes = new LinkedHashSet<String>();
+        Set<String> excludes = new LinkedHashSet<String>();
+        Set<String> storedFields = new LinkedHashSet<String>();
+        Set<String> docValueFields = new LinkedHashSet<String>();
+        boolean sourceLess = true;
+        for (Class<?> clazz : classes) {
+            if (clazz == null) {
+                continue;
+            }
+            SourceFetchContext sourceFetchContext = getFetchSource(clazz.getName(), fetchContext);
+            if (sourceFetchContext == null) {
+                continue;
+            }
+            includes.addAll(sourceFetchContext.getIncludes());
+            excludes.addAll(sourceFetchContext.getExcludes());
+            Set<String> classStoredFields = this.storedFieldsByClassName.get(clazz.getName());
+            Set<String> classDocValueFields = this.docValueFieldsByClassName.get(clazz.getName());
+            for (String include : sourceFetchContext.getIncludes()) {
+                if (classStoredFields != null && classStoredFields.contains(include)) {
+                    storedFields.add(include);
+                } else if (classDocValueFields != null && classDocValueFields.contains(include)) {
+                    docValueFields.add(include);
+                } else {
+                    sourceLess = false;
+                }
+            }
+        }
+        // a field stored in a class but only having doc values in another cannot be fetched the same way for all the classes.
+        sourceLess = sourceLess && !includes.isEmpty() && excludes.isEmpty() && Collections.disjoint(storedFields, docValueFields);
+        return new ResolvedFetchContext(toArray(includes), toArray(excludes), sourceLess ? storedFields.toArray(new String[storedFields.size()]) : null,
+                sourceLess ? docValueFields.toArray(new String[docValueFields.size()]) : null);
+    }
+
+    private static String[] toArray(Set<String> fields) {
+        return fields.isEmpty() ? null : fields.toArray(new String[fields.size()]);
+    }
+
+    /**
+     * Get the name of the field to use to sort on a field of the given class: the keyword sub field for analyzed text that have one.
+     *
+     * @param className The class for which to get the sort field.
+     * @param esFieldName The name of the field in elastic search.
+     * @return The name of the field to use in sort clauses.
+     */
+    public String getSortField(String className, String esFieldName) {
+        Set<String> keywordSubFields = this.keywordSubFieldsByClassName.get(className);
+        if (keywordSubFields != null && keywordSubFields.contains(esFieldName)) {
+            return esFieldName + "." + FieldsMappingBuilder.KEYWORD_FIELD;
+        }
+        return esFieldName;
+    }
+
+    /**
+     * Get the fields of a class that are mapped dynamically by elastic search: properties without mapping and free-form object fields (maps without
+     * {@link org.elasticsearch.annotation.MapKeyValue}, objects without properties) for which every new key adds a field to the mapping and updates the
+     * cluster state.
+     *
+     * @param className The class for which to get the dynamically mapped fields.
+     * @return The paths of the dynamically mapped fields (empty if none).
+     */
+    public List<String> getDynamicFields(String className) {
+        List<String> dynamicFields = this.dynamicFieldsByClassName.get(className);
+        return dynamicFields == null ? Collections.<String> emptyList() : dynamicFields;
+    }
+
+    /**
+     * Get the index template generated for a class (see {@link IndexTemplate}).
+     *
+     * @param clazz The class for which to get the index template.
+     * @return The index template of the class or null if the class has no template.
+     */
+    public IndexTemplateSource getIndexTemplate(Class<?> clazz) {
+        return this.indexTemplatesByClassName.get(clazz.getName());
+    }
+
+    /**
+     * Get the index templates generated for all the parsed classes, to be installed once the mapping builder is initialized.
+     *
+     * @return The index templates.
+     */
+    public Collection<IndexTemplateSource> getIndexTemplates() {
+        return Collections.unmodifiableCollection(this.indexTemplatesByClassName.values());
+    }
+
+    /**
+     * Build an index template with the mapping and settings of a class.
+     *
+     * @param clazz The class of the documents of the indices.
+     * @param name The name of the template.
+     * @param patterns The patterns of the names of the indices created with the template.
+     * @param aliases The aliases added to the created indices.
+     * @param order The order of the template.
+     * @return The index template.
+     * @throws IntrospectionException In case the class cannot be introspected.
+     * @throws IOException In case the template cannot be serialized.
+     */
+    public IndexTemplateSource buildIndexTemplate(Class<?> clazz, String name, String[] patterns, String[] aliases, int order)
+            throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> template = Maps.newLinkedHashMap();
+        template.put("index_patterns", patterns);
+        template.put("order", order);
+        String settings = getIndexSettings(clazz);
+        if (settings != null) {
+            template.put("settings", mapper.readValue(settings, Map.class));
+        }
+        template.put("mappings", mapper.readValue(getMapping(clazz), Map.class));
+        Map<String, Object> templateAliases = Maps.newLinkedHashMap();
+        for (String alias : aliases) {
+            templateAliases.put(alias, Collections.emptyMap());
+        }
+        template.put("aliases", templateAliases);
+        return new IndexTemplateSource(name, mapper.writeValueAsString(template));
+    }
+
+    /**
+     * Get the time partitioning of the indices of a class (see {@link TimeStamp#partition()}).
+     *
+     * @param className The class for which to get the time partitioning.
+     * @return The time partitioning of the class, {@link TimePartition#NONE} if the indices of the class are not partitioned.
+     */
+    public TimePartition getTimePartition(String className) {
+        TimePartition timePartition = this.timePartitionByClassName.get(className);
+        return timePartition == null ? TimePartition.NONE : timePartition;
+    }
+
+    /**
+     * Get the timestamp field of a class with time partitioned indices.
+     *
+     * @param className The class for which to get the timestamp field.
+     * @return The name of the timestamp field or null if the indices of the class are not partitioned.
+     */
+    public String getTimeStampField(String className) {
+        return this.timeStampFieldByClassName.get(className);
+    }
+
+    /**
+     * Register a base index of the partitions of a time partitioned class: the partitions &lt;baseIndex&gt;-&lt;period&gt; have the base index as alias.
+     * The aliases of the generated index template that match its patterns are registered when the class is parsed.
+     *
+     * @param className The time partitioned class.
+     * @param baseIndex The base index.
+     */
+    public void registerTimePartitionBaseIndex(String className, String baseIndex) {
+        this.timePartitionBaseIndicesByClassName.computeIfAbsent(className, k -> ConcurrentHashMap.newKeySet()).add(baseIndex);
+    }
+
+    /**
+     * Check if an index name is a registered base index of the partitions of a time partitioned class.
+     *
+     * @param className The class.
+     * @param index The index name.
+     * @return True if the index is the base alias of the partitions of the class, false for concrete indices, patterns and other aliases.
+     */
+    public boolean isTimePartitionBaseIndex(String className, String index) {
+        Set<String> baseIndices = this.timePartitionBaseIndicesByClassName.get(className);
+        return baseIndices != null && baseIndices.contains(index);
+    }
+
+    /**
+     * Get the index sort of a class (see {@link IndexSettings#sortFields()}).
+     *
+     * @param className The class for which to get the index sort.
+     * @return The index sort fields in order, associated to true if the index is sorted in descending order on the field (empty if the index is not
+     *         sorted).
+     */
+    public Map<String, Boolean> getIndexSort(String className) {
+        Map<String, Boolean> indexSort = this.indexSortByClassName.get(className);
+        return indexSort == null ? Collections.<String, Boolean> emptyMap() : indexSort;
+    }
+
+    /**
+     * Get the optimizations applied on the mapping of a class (see {@link ESObject#optimizeMapping()}).
+     *
+     * @param clazz The class for which to get the optimization report.
+     * @return The report of the optimizations or null if the mapping of the class is not optimized.
+     */
+    public MappingOptimizer.Report getOptimizationReport(Class<?> clazz) {
+        return this.optimizationReportByClassName.get(clazz.getName());
+    }
+
     private void initialize(String packageName) throws IntrospectionException, JsonGenerationException, JsonMappingException, IOException {
         Set<Class<?>> classSet = org.elasticsearch.util.AnnotationScanner.scan(packageName, ESObject.class);
         for (Class<?> clazz : classSet) {
@@ -172,6 +447,7 @@ public class MappingBuilder {
             throws IntrospectionException, JsonGenerationException, JsonMappingException, IOException {
         ESObject esObject = AnnotationScanner.getAnnotation(ESObject.class, clazz);
         ESAll esAll = AnnotationScanner.getAnnotation(ESAll.class, clazz);
+        IndexSettings indexSettings = AnnotationScanner.getAnnotation(IndexSettings.class, clazz);
 
         String typeNameStr = null;
         if (!Modifier.isAbstract(clazz.getModifiers())) {
@@ -204,6 +480,48 @@ public class MappingBuilder {
 ****************************/
 
         this.fieldsMappingBuilder.parseFieldMappings(clazz, classDefinitionMap, facetFields, filteredFields, fetchContexts, pathPrefix, null, esAll == null ? "" : esAll.analyser());
+        processDynamicMapping(clazz, esObject, classDefinitionMap);
+        TimePartition timePartition = this.fieldsMappingBuilder.getTimePartition(clazz);
+        if (TimePartition.NONE.equals(timePartition)) {
+            this.timePartitionByClassName.remove(clazz.getName());
+            this.timeStampFieldByClassName.remove(clazz.getName());
+        } else {
+            String timeStampField = this.fieldsMappingBuilder.getTimeStamp(clazz);
+            // the partitions are selected from the date range filter on the timestamp, a single filter is allowed on a field.
+            IFilterBuilderHelper timeStampFilter = null;
+            for (IFilterBuilderHelper filteredField : filteredFields) {
+                if (timeStampField.equals(filteredField.getEsFieldName())) {
+                    timeStampFilter = filteredField;
+                }
+            }
+            if (timeStampFilter == null) {
+                filteredFields.add(new DateRangeFilterBuilderHelper(null, timeStampField));
+            } else if (!(timeStampFilter instanceof DateRangeFilterBuilderHelper)) {
+                throw new MappingException("Timestamp <" + timeStampField + "> of time partitioned class <" + clazz.getName()
+                        + "> must be filtered with a date range, remove its filter annotation.");
+            }
+            this.timePartitionByClassName.put(clazz.getName(), timePartition);
+            this.timeStampFieldByClassName.put(clazz.getName(), timeStampField);
+        }
+        boolean sourceDisabled = esObject != null && !esObject.source();
+        if (sourceDisabled) {
+            // excludes are meaningless without _source.
+            classDefinitionMap.put("_source", MapUtil.getMap("enabled", false));
+        } else {
+            this.fieldsMappingBuilder.checkSourceExcludes(clazz, classDefinitionMap, fetchContexts);
+        }
+
+        if (esObject != null && esObject.optimizeMapping()) {
+            Set<String> sortedFields = this.fieldsMappingBuilder.getSortableFields(clazz);
+            if (indexSettings != null) {
+                // index sort fields requires doc values.
+                sortedFields.addAll(Arrays.asList(indexSettings.sortFields()));
+            }
+            MappingOptimizer optimizer = new MappingOptimizer(facetFields, filteredFields, sortedFields);
+            visitFields(classDefinitionMap, "", optimizer::optimize);
+            optimizer.logReport(clazz.getName());
+            this.optimizationReportByClassName.put(clazz.getName(), optimizer.getReport());
+        }
 
         ObjectMapper mapper = new ObjectMapper();
         if (typeNameStr != null) {
@@ -215,8 +533,182 @@ public class MappingBuilder {
         this.facetByClassName.put(clazz.getName(), facetFields);
         this.filtersByClassName.put(clazz.getName(), filteredFields);
         this.fetchSourceContextByClass.put(clazz.getName(), fetchContexts);
+        Set<String> normalizers = new HashSet<String>();
+        Set<String> keywordSubFields = new HashSet<String>();
+        Set<String> storedFields = new HashSet<String>();
+        Set<String> docValueFields = new HashSet<String>();
+        Set<String> singleValuedFields = this.fieldsMappingBuilder.getSingleValuedFields(clazz);
+        visitFields(classDefinitionMap, "", (esFieldName, fieldDefinition) -> {
+            if (fieldDefinition.get("normalizer") != null) {
+                normalizers.add((String) fieldDefinition.get("normalizer"));
+            }
+            Map<String, Object> subFields = (Map<String, Object>) fieldDefinition.get("fields");
+            if ("text".equals(fieldDefinition.get("type")) && subFields != null && subFields.containsKey(FieldsMappingBuilder.KEYWORD_FIELD)) {
+                keywordSubFields.add(esFieldName);
+            }
+            if (Boolean.TRUE.equals(fieldDefinition.get("store"))) {
+                storedFields.add(esFieldName);
+            } else if (EXACT_DOC_VALUES_TYPES.contains(fieldDefinition.get("type")) && !Boolean.FALSE.equals(fieldDefinition.get("doc_values"))
+                    && fieldDefinition.get("normalizer") == null && singleValuedFields.contains(esFieldName)) {
+                docValueFields.add(esFieldName);
+            }
+        });
+        this.keywordSubFieldsByClassName.put(clazz.getName(), keywordSubFields);
+        this.storedFieldsByClassName.put(clazz.getName(), storedFields);
+        this.docValueFieldsByClassName.put(clazz.getName(), docValueFields);
+        if (sourceDisabled) {
+            this.sourceDisabledClassNames.add(clazz.getName());
+            warnNotRetrievableFields(clazz, fetchContexts, storedFields, docValueFields);
+        } else {
+            this.sourceDisabledClassNames.remove(clazz.getName());
+        }
+        Map<?, ?> sourceDefinition = (Map<?, ?>) classDefinitionMap.get("_source");
+        if (sourceDefinition != null && sourceDefinition.get("excludes") != null) {
+            this.sourceExcludesClassNames.add(clazz.getName());
+        } else {
+            this.sourceExcludesClassNames.remove(clazz.getName());
+        }
+        // the fetch contexts of the class may have changed.
+        this.resolvedFetchContexts.clear();
+
+        this.settingsByClassName.put(clazz.getName(), buildSettings(mapper, esObject, esAll, indexSettings, normalizers));
+        this.indexSortByClassName.put(clazz.getName(), buildIndexSort(indexSettings));
+
+        IndexTemplate indexTemplate = AnnotationScanner.getAnnotation(IndexTemplate.class, clazz);
+        if (typeNameStr != null && (indexTemplate != null || !TimePartition.NONE.equals(timePartition))) {
+            String templateName = indexTemplate == null || indexTemplate.name().isEmpty() ? typeNameStr : indexTemplate.name();
+            String[] patterns = indexTemplate == null || indexTemplate.patterns().length == 0 ? new String[] { TimePartitions.indexPattern(templateName) }
+                    : indexTemplate.patterns();
+            String[] aliases = indexTemplate == null || indexTemplate.aliases().length == 0 ? new String[] { templateName } : indexTemplate.aliases();
+            this.indexTemplatesByClassName.put(clazz.getName(),
+                    buildIndexTemplate(clazz, templateName, patterns, aliases, indexTemplate == null ? 0 : indexTemplate.order()));
+            this.timePartitionBaseIndicesByClassName.remove(clazz.getName());
+            if (!TimePartition.NONE.equals(timePartition)) {
+                for (String alias : aliases) {
+                    if (Arrays.asList(patterns).contains(TimePartitions.indexPattern(alias))) {
+                        registerTimePartitionBaseIndex(clazz.getName(), alias);
+                    }
+                }
+            }
+        } else {
+            this.indexTemplatesByClassName.remove(clazz.getName());
+            this.timePartitionBaseIndicesByClassName.remove(clazz.getName());
+        }
+    }
+
+    /**
+     * Set the dynamic setting and templates of the root object, the templates of the object fields are moved to the root object as elastic search only
+     * accepts them there. Fields mapped dynamically are reported, free-form objects as warnings as they may explode the mapping.
+     */
+    @SuppressWarnings("unchecked")
+    private void processDynamicMapping(Class<?> clazz, ESObject esObject, Map<String, Object> classDefinitionMap) throws IntrospectionException {
+        List<Map<String, Object>> dynamicTemplates = new ArrayList<Map<String, Object>>();
+        String rootDynamic = DynamicMapping.TRUE.getEsValue();
+        if (esObject != null) {
+            if (!DynamicMapping.DEFAULT.equals(esObject.dynamic())) {
+                rootDynamic = esObject.dynamic().getEsValue();
+                classDefinitionMap.put("dynamic", rootDynamic);
+            }
+            for (DynamicTemplate dynamicTemplate : esObject.dynamicTemplates()) {
+                dynamicTemplates.add(DynamicTemplates.build(dynamicTemplate, null));
+            }
+        }
+
+        // objects inherit the dynamic setting of their parent.
+        Map<String, String> dynamicByPath = new HashMap<String, String>();
+        List<String> freeFormFields = new ArrayList<String>();
+        String inheritedDynamic = rootDynamic;
+        visitFields(classDefinitionMap, "", (esFieldName, fieldDefinition) -> {
+            Object fieldDynamicTemplates = fieldDefinition.remove(DynamicTemplates.DYNAMIC_TEMPLATES);
+            if (fieldDynamicTemplates != null) {
+                dynamicTemplates.addAll((List<Map<String, Object>>) fieldDynamicTemplates);
+            }
+            int index = esFieldName.lastIndexOf('.');
+            String parentDynamic = index < 0 ? null : dynamicByPath.get(esFieldName.substring(0, index));
+            String dynamic = fieldDefinition.containsKey("dynamic") ? String.valueOf(fieldDefinition.get("dynamic"))
+                    : parentDynamic == null ? inheritedDynamic : parentDynamic;
+            dynamicByPath.put(esFieldName, dynamic);
+            if (DynamicMapping.TRUE.getEsValue().equals(dynamic) && isFreeFormObject(fieldDefinition)) {
+                freeFormFields.add(esFieldName);
+            }
+        });
+        if (!dynamicTemplates.isEmpty()) {
+            classDefinitionMap.put(DynamicTemplates.DYNAMIC_TEMPLATES, dynamicTemplates);
+        }
+
+        List<String> unmappedFields = this.fieldsMappingBuilder.getUnmappedFields(clazz, classDefinitionMap);
+        if (DynamicMapping.STRICT.getEsValue().equals(rootDynamic) && !unmappedFields.isEmpty()) {
+            throw new MappingException("Fields <" + String.join(",", unmappedFields) + "> of <" + clazz.getName()
+                    + "> have no mapping and would be rejected by the strict dynamic mapping.");
+        }
+        List<String> dynamicFields = new ArrayList<String>(freeFormFields);
+        if (DynamicMapping.TRUE.getEsValue().equals(rootDynamic)) {
+            dynamicFields.addAll(unmappedFields);
+        }
+        if (dynamicFields.isEmpty()) {
+            this.dynamicFieldsByClassName.remove(clazz.getName());
+            return;
+        }
+        Collections.sort(dynamicFields);
+        this.dynamicFieldsByClassName.put(clazz.getName(), Collections.unmodifiableList(dynamicFields));
+        if (freeFormFields.isEmpty()) {
+            log.info("Fields <{}> of <{}> have no mapping and are mapped dynamically.", String.join(",", dynamicFields), clazz.getName());
+        } else {
+            log.warn("Free-form fields <{}> of <{}> are mapped dynamically, every new key adds a field to the mapping. Set the dynamic option of their "
+                    + "ObjectField annotation to false or strict to prevent mapping explosion.", String.join(",", freeFormFields), clazz.getName());
+        }
+    }
+
+    /**
+     * An enabled object or nested field without properties: all its sub fields are dynamic.
+     */
+    private boolean isFreeFormObject(Map<String, Object> fieldDefinition) {
+        Object type = fieldDefinition.get("type");
+        if (!"object".equals(type) && !"nested".equals(type)) {
+            return false;
+        }
+        Object properties = fieldDefinition.get("properties");
+        return !"false".equals(String.valueOf(fieldDefinition.get("enabled"))) && (properties == null || ((Map<?, ?>) properties).isEmpty());
+    }
+
+    /**
+     * Without _source, the fields of a fetch context can only be retrieved if they are stored or have exact doc values.
+     */
+    private void warnNotRetrievableFields(Class<?> clazz, Map<String, SourceFetchContext> fetchContexts, Set<String> storedFields,
+            Set<String> docValueFields) {
+        if (storedFields.isEmpty()) {
+            log.warn("The _source of <" + clazz.getName() + "> is disabled but none of its fields is stored.");
+        }
+        for (Map.Entry<String, SourceFetchContext> fetchContext : fetchContexts.entrySet()) {
+            for (String include : fetchContext.getValue().getIncludes()) {
+                if (!storedFields.contains(include) && !docValueFields.contains(include)) {
+                    log.warn("Field <" + include + "> of fetch context <" + fetchContext.getKey() + "> cannot be retrieved as the _source of <" + clazz.getName()
+                            + "> is disabled and the field is neither stored nor has exact doc values.");
+                }
+            }
+        }
+    }
 
-        this.settingsByClassName.put(clazz.getName(), buildSettings(mapper, esObject.analyzerDefinitions()));
+    /**
+     * Call the visitor for every field definition (including object properties and multi-fields) of the given mapping.
+     */
+    @SuppressWarnings("unchecked")
+    private void visitFields(Map<String, Object> definitionMap, String pathPrefix, BiConsumer<String, Map<String, Object>> visitor) {
+        for (String container : new String[] { "properties", "fields" }) {
+            Map<String, Object> fields = (Map<String, Object>) definitionMap.get(container);
+            if (fields == null) {
+                continue;
+            }
+            for (Map.Entry<String, Object> field : fields.entrySet()) {
+                if (!(field.getValue() instanceof Map)) {
+                    continue;
+                }
+                Map<String, Object> fieldDefinition = (Map<String, Object>) field.getValue();
+                String esFieldName = pathPrefix + field.getKey();
+                visitor.accept(esFieldName, fieldDefinition);
+                visitFields(fieldDefinition, esFieldName + ".", visitor);
+            }
+        }
     }
 
     @JsonInclude(JsonInclude.Include.NON_EMPTY)
@@ -228,11 +720,91 @@ public class MappingBuilder {
         public String[] stopwords;
     }
 
-    private String buildSettings(ObjectMapper mapper, IndexAnalyserDefinition[] customAnalyserDefinitions) throws JsonProcessingException {
-        if (ArrayUtils.isEmpty(customAnalyserDefinitions)) {
+    private static class EdgeNGramFilterFields {
+        public String type = "edge_ngram";
+        public int min_gram;
+        public int max_gram;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private static class NormalizerFields {
+        public String type = "custom";
+        public String[] char_filter;
+        public String[] filter;
+    }
+
+    private String buildSettings(ObjectMapper mapper, ESObject esObject, ESAll esAll, IndexSettings indexSettings, Set<String> usedNormalizers)
+            throws JsonProcessingException {
+        Map<Object, Object> settings = buildIndexSettings(indexSettings);
+        Map<Object, Object> analysis = buildAnalysis(esObject, esAll, usedNormalizers);
+        if (analysis != null) {
+            settings.put("analysis", analysis);
+        }
+        if (settings.isEmpty()) {
+            return null;
+        }
+        return mapper.writeValueAsString(settings);
+    }
+
+    private Map<Object, Object> buildIndexSettings(IndexSettings indexSettings) {
+        Map<Object, Object> settings = Maps.newLinkedHashMap();
+        if (indexSettings == null) {
+            return settings;
+        }
+        putIfSet(settings, "number_of_shards", indexSettings.numberOfShards());
+        putIfSet(settings, "number_of_replicas", indexSettings.numberOfReplicas());
+        putIfSet(settings, "refresh_interval", indexSettings.refreshInterval());
+        putIfSet(settings, "codec", indexSettings.codec());
+        putIfSet(settings, "max_result_window", indexSettings.maxResultWindow());
+        putIfSet(settings, "translog.durability", indexSettings.translogDurability());
+        putIfSet(settings, "routing_partition_size", indexSettings.routingPartitionSize());
+        String[] sortFields = indexSettings.sortFields();
+        if (sortFields.length > 0) {
+            boolean[] sortDescending = indexSettings.sortDescending();
+            if (sortDescending.length > 0 && sortDescending.length != sortFields.length) {
+                throw new MappingException("IndexSettings sortDescending must be empty or match the <" + sortFields.length + "> sort fields.");
+            }
+            String[] sortOrders = new String[sortFields.length];
+            for (int i = 0; i < sortFields.length; i++) {
+                sortOrders[i] = sortDescending.length > 0 && sortDescending[i] ? "desc" : "asc";
+            }
+            settings.put("sort.field", sortFields);
+            settings.put("sort.order", sortOrders);
+        }
+        return settings;
+    }
+
+    private Map<String, Boolean> buildIndexSort(IndexSettings indexSettings) {
+        Map<String, Boolean> indexSort = new LinkedHashMap<String, Boolean>();
+        if (indexSettings != null) {
+            for (int i = 0; i < indexSettings.sortFields().length; i++) {
+                indexSort.put(indexSettings.sortFields()[i], indexSettings.sortDescending().length > 0 && indexSettings.sortDescending()[i]);
+            }
+        }
+        return Collections.unmodifiableMap(indexSort);
+    }
+
+    private static void putIfSet(Map<Object, Object> settings, String key, int value) {
+        if (value >= 0) {
+            settings.put(key, value);
+        }
+    }
+
+    private static void putIfSet(Map<Object, Object> settings, String key, String value) {
+        if (!value.isEmpty()) {
+            settings.put(key, value);
+        }
+    }
+
+    private Map<Object, Object> buildAnalysis(ESObject esObject, ESAll esAll, Set<String> usedNormalizers) {
+        IndexAnalyserDefinition[] customAnalyserDefinitions = esObject.analyzerDefinitions();
+        boolean searchAsYouType = esAll != null && esAll.searchAsYouType();
+        Map<Object, Object> normalizers = buildNormalizers(esObject.normalizerDefinitions(), usedNormalizers);
+        if (ArrayUtils.isEmpty(customAnalyserDefinitions) && !searchAsYouType && normalizers.isEmpty()) {
             return null;
         }
 
+        Map<Object, Object> analysis = Maps.newLinkedHashMap();
         Map<Object, Object> analysers = Maps.newHashMap();
         for (IndexAnalyserDefinition analyserDefinition : customAnalyserDefinitions) {
             AnalyserFields analyserFields = new AnalyserFields();
@@ -244,6 +816,44 @@ public class MappingBuilder {
             analysers.put(analyserDefinition.name(), analyserFields);
         }
 
-        return "{\"analysis\":{\"analyzer\":" + mapper.writeValueAsString(analysers) + "}}";
+        if (searchAsYouType) {
+            // edge n-gram analyzer for the prefix sub field of the all field.
+            AnalyserFields analyserFields = new AnalyserFields();
+            analyserFields.tokenizer = "standard";
+            analyserFields.filter = new String[] { "lowercase", FieldsMappingBuilder.ALL_EDGE_NGRAM_FILTER };
+            analysers.put(FieldsMappingBuilder.ALL_EDGE_NGRAM_ANALYZER, analyserFields);
+            AnalyserFields searchAnalyserFields = new AnalyserFields();
+            searchAnalyserFields.tokenizer = analyserFields.tokenizer;
+            searchAnalyserFields.filter = new String[] { "lowercase" };
+            analysers.put(FieldsMappingBuilder.ALL_EDGE_NGRAM_SEARCH_ANALYZER, searchAnalyserFields);
+            EdgeNGramFilterFields filterFields = new EdgeNGramFilterFields();
+            filterFields.min_gram = esAll.minGram();
+            filterFields.max_gram = esAll.maxGram();
+            analysis.put("filter", MapUtil.getMap(FieldsMappingBuilder.ALL_EDGE_NGRAM_FILTER, filterFields));
+        }
+        if (!analysers.isEmpty()) {
+            analysis.put("analyzer", analysers);
+        }
+        if (!normalizers.isEmpty()) {
+            analysis.put("normalizer", normalizers);
+        }
+
+        return analysis;
+    }
+
+    private Map<Object, Object> buildNormalizers(IndexNormalizerDefinition[] normalizerDefinitions, Set<String> usedNormalizers) {
+        Map<Object, Object> normalizers = Maps.newHashMap();
+        for (IndexNormalizerDefinition normalizerDefinition : normalizerDefinitions) {
+            NormalizerFields normalizerFields = new NormalizerFields();
+            normalizerFields.char_filter = normalizerDefinition.char_filter();
+            normalizerFields.filter = normalizerDefinition.filters();
+            normalizers.put(normalizerDefinition.name(), normalizerFields);
+        }
+        if (usedNormalizers.contains(Normalizer.LOWERCASE) && !normalizers.containsKey(Normalizer.LOWERCASE)) {
+            NormalizerFields normalizerFields = new NormalizerFields();
+            normalizerFields.filter = new String[] { "lowercase" };
+            normalizers.put(Normalizer.LOWERCASE, normalizerFields);
+        }
+        return normalizers;
     }
 }
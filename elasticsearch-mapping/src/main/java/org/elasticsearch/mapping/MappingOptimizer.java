@@ -0,0 +1,147 @@
+package org.elasticsearch.mapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Prune the generated mapping of a class based on the usage of the fields declared through the annotations (facets, filters and sorts).
+ * <ul>
+ * <li>doc_values are disabled on fields that are never aggregated nor sorted.</li>
+ * <li>norms are disabled and index_options reduced to docs on analyzed fields that are only used as filters (no scoring, no phrase queries).</li>
+ * </ul>
+ * Options explicitly defined in the annotations are never overridden.
+ */
+@Slf4j
+public class MappingOptimizer {
+    /** Field types that supports doc values. */
+    static final Set<String> DOC_VALUES_TYPES = new HashSet<String>(Arrays.asList("keyword", "long", "integer", "short", "byte", "double", "float",
+            "half_float", "scaled_float", "date", "boolean", "ip", "geo_point"));
+
+    private final Set<String> aggregatedFields = new HashSet<String>();
+    private final Set<String> filteredFields = new HashSet<String>();
+    private final Set<String> sortedFields;
+    private final Report report = new Report();
+
+    /**
+     * Create an optimizer for a class.
+     *
+     * @param facets The facets of the class.
+     * @param filters The filters of the class (including the facets).
+     * @param sortedFields The fields that are used to sort the results.
+     */
+    public MappingOptimizer(List<IFacetBuilderHelper> facets, List<IFilterBuilderHelper> filters, Set<String> sortedFields) {
+        for (IFacetBuilderHelper facet : facets) {
+            aggregatedFields.add(facet.getEsFieldName());
+        }
+        for (IFilterBuilderHelper filter : filters) {
+            filteredFields.add(filter.getEsFieldName());
+        }
+        this.sortedFields = sortedFields;
+    }
+
+    /**
+     * Optimize a field definition of the mapping.
+     *
+     * @param esFieldName The full name of the field in elastic search (including object path and multi field name).
+     * @param fieldDefinition The definition of the field to optimize.
+     */
+    public void optimize(String esFieldName, Map<String, Object> fieldDefinition) {
+        Object type = fieldDefinition.get("type");
+        boolean aggregatedOrSorted = isUsed(esFieldName, aggregatedFields) || isUsed(esFieldName, sortedFields);
+        if (DOC_VALUES_TYPES.contains(type) && !aggregatedOrSorted && !fieldDefinition.containsKey("doc_values")) {
+            fieldDefinition.put("doc_values", false);
+            report.docValuesDisabled.add(esFieldName);
+        }
+        if ("text".equals(type) && !aggregatedOrSorted && filteredFields.contains(esFieldName)) {
+            if (!fieldDefinition.containsKey("norms")) {
+                fieldDefinition.put("norms", false);
+                report.normsDisabled.add(esFieldName);
+            }
+            if (!fieldDefinition.containsKey("index_options")) {
+                fieldDefinition.put("index_options", "docs");
+                report.indexOptionsReduced.add(esFieldName);
+            }
+        }
+    }
+
+    /**
+     * Get the optimizations applied so far.
+     *
+     * @return The report of the optimizations.
+     */
+    public Report getReport() {
+        return report;
+    }
+
+    /**
+     * Log the optimizations applied on the mapping of a class.
+     *
+     * @param className The name of the optimized class.
+     */
+    public void logReport(String className) {
+        log.info("Mapping of <" + className + "> optimized: " + report);
+    }
+
+    /**
+     * A field is used if it is in the used set or if it is a sub field (multi field) of a used field.
+     */
+    private boolean isUsed(String esFieldName, Set<String> usedFields) {
+        String name = esFieldName;
+        while (true) {
+            if (usedFields.contains(name)) {
+                return true;
+            }
+            int index = name.lastIndexOf('.');
+            if (index < 0) {
+                return false;
+            }
+            name = name.substring(0, index);
+        }
+    }
+
+    /**
+     * Optimizations applied on the mapping of a class.
+     */
+    public static class Report {
+        /** Bytes used by the norms of a field for every document. */
+        private static final int NORMS_BYTES_PER_DOCUMENT = 1;
+
+        private final List<String> docValuesDisabled = new ArrayList<String>();
+        private final List<String> normsDisabled = new ArrayList<String>();
+        private final List<String> indexOptionsReduced = new ArrayList<String>();
+
+        public List<String> getDocValuesDisabled() {
+            return docValuesDisabled;
+        }
+
+        public List<String> getNormsDisabled() {
+            return normsDisabled;
+        }
+
+        public List<String> getIndexOptionsReduced() {
+            return indexOptionsReduced;
+        }
+
+        /**
+         * Get the projected number of bytes saved for every indexed document by disabling norms. Doc values and postings savings depend on the content of
+         * the fields and are not estimated.
+         *
+         * @return The projected number of bytes saved per document.
+         */
+        public int getNormsBytesPerDocument() {
+            return normsDisabled.size() * NORMS_BYTES_PER_DOCUMENT;
+        }
+
+        @Override
+        public String toString() {
+            return "doc_values disabled on <" + docValuesDisabled + ">, norms disabled on <" + normsDisabled + "> (" + getNormsBytesPerDocument()
+                    + " bytes per document), index_options reduced to docs on <" + indexOptionsReduced + ">";
+        }
+    }
+}
@@ -14,19 +14,31 @@ import org.apache.lucene.search.join.ScoreMode;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.IndicesOptions;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 //import org.elasticsearch.index.query.FilterBuilder;
 //import org.elasticsearch.index.query.FilterBuilders;
 import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.Operator;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
 import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
+import org.elasticsearch.search.aggregations.Aggregation;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.InternalAggregation;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.filter.FilterAggregationBuilder;
 import org.elasticsearch.search.aggregations.metrics.tophits.TopHitsAggregationBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.FieldSortBuilder;
 import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.internal.InternalSearchResponse;
+import org.elasticsearch.search.profile.SearchProfileShardResults;
 import org.elasticsearch.search.sort.SortOrder;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -46,6 +58,12 @@ public class QueryHelper {
     private MappingBuilder mappingBuilder;
     @Resource
     private ElasticSearchClient esClient;
+    @Resource
+    private FacetCache facetCache;
+    @Resource
+    private QueryProfiler queryProfiler;
+    @Resource
+    private TermsLookupStore termsLookupStore;
 
     private int maxExpansions;
 
@@ -60,7 +78,7 @@ public class QueryHelper {
      * @return a {@link QueryBuilderHelper} instance.
      */
     public IQueryBuilderHelper buildQuery() {
-        return new QueryBuilderHelper(mappingBuilder, esClient);
+        return configure(new QueryBuilderHelper(mappingBuilder, esClient));
     }
 
     /**
@@ -72,7 +90,19 @@ public class QueryHelper {
      * @return a {@link QueryBuilderHelper} instance.
      */
     public IQueryBuilderHelper buildQuery(String searchQuery) {
-        return new QueryBuilderHelper(mappingBuilder, esClient, maxExpansions, searchQuery);
+        return configure(new QueryBuilderHelper(mappingBuilder, esClient, maxExpansions, searchQuery));
+    }
+
+    /**
+     * Create a {@link QueryBuilderHelper} to prepare a query on the all field based on the given search query and mode. If the search query is empty or
+     * null this falls back to a match all query.
+     *
+     * @param searchQuery The search query.
+     * @param searchQueryMode The type of query to run on the all field.
+     * @return a {@link QueryBuilderHelper} instance.
+     */
+    public IQueryBuilderHelper buildQuery(String searchQuery, SearchQueryMode searchQueryMode) {
+        return configure(new QueryBuilderHelper(mappingBuilder, esClient, maxExpansions, searchQuery, searchQueryMode));
     }
 
     /**
@@ -84,7 +114,14 @@ public class QueryHelper {
      * @return a {@link QueryBuilderHelper} instance.
      */
     public IQueryBuilderHelper buildQuery(String prefixField, String searchQuery) {
-        return new QueryBuilderHelper(mappingBuilder, esClient, prefixField, searchQuery);
+        return configure(new QueryBuilderHelper(mappingBuilder, esClient, prefixField, searchQuery));
+    }
+
+    private QueryBuilderHelper configure(QueryBuilderHelper queryBuilderHelper) {
+        queryBuilderHelper.facetCache = facetCache;
+        queryBuilderHelper.queryProfiler = queryProfiler;
+        queryBuilderHelper.termsLookupStore = termsLookupStore;
+        return queryBuilderHelper;
     }
 
     public interface IQueryBuilderHelper<T extends IQueryBuilderHelper> {
@@ -159,9 +196,30 @@ public class QueryHelper {
         T filters(Map<String, String[]> filters, Map<String, FilterValuesStrategy> filterStrategies, QueryBuilder... customFilters);
 
         /**
+         * Add typed filters to the current query, the filter specs are consumed directly by the annotation defined filters without string encoding.
+         *
+         * @param filters The filters to add the the query based on annotation defined filters.
+         * @param customFilters user provided filters to add (using and clause) to the annotation based filters.
+         * @return current instance.
+         */
+        T filterSpecs(Map<String, FilterSpec> filters, QueryBuilder... customFilters);
+
+        /**
+         * Add typed filters to the current query, the filter specs are consumed directly by the annotation defined filters without string encoding.
+         *
+         * @param filters The filters to add the the query based on annotation defined filters.
+         * @param filterStrategies The filter strategies to apply to filters.
+         * @param customFilters user provided filters to add (using and clause) to the annotation based filters.
+         * @return current instance.
+         */
+        T filterSpecs(Map<String, FilterSpec> filters, Map<String, FilterValuesStrategy> filterStrategies, QueryBuilder... customFilters);
+
+        /**
+         * Prepare the search request on the given indices or aliases. For time partitioned classes (see {@link TimePartition}) the indices are the base
+         * indices of the partitions and are reduced to the partitions that overlap the date range filter on the timestamp, if any.
          * 
-         * @param indices
-         * @return
+         * @param indices The indices or aliases to search.
+         * @return current instance.
          */
         ISearchQueryBuilderHelper prepareSearch(String... indices);
     }
@@ -183,7 +241,8 @@ public class QueryHelper {
         SearchRequestBuilder getSearchRequestBuilder();
 
         /**
-         * Set the aggregations for the given classes.
+         * Set the aggregations for the given classes. When the {@link FacetCache} is enabled the aggregations are added to the request only if they are not
+         * already cached for the same classes, indices, query and filters (writes done outside of {@link IndexManager} must invalidate the cache).
          */
         ISearchQueryBuilderHelper facets();
 
@@ -192,6 +251,22 @@ public class QueryHelper {
          */
         ISearchQueryBuilderHelper facets(List<IFacetBuilderHelper> facetBuilderHelpers);
 
+        /**
+         * Set the aggregations for the given classes using the given strategy.
+         *
+         * @param strategy The strategy to apply on the facets of the filtered fields.
+         */
+        ISearchQueryBuilderHelper facets(FacetStrategy strategy);
+
+        /**
+         * Set the aggregations for the given classes using the given strategy. With {@link FacetStrategy#POST_FILTER} the facets of a field are returned
+         * as a sub aggregation of a filter aggregation named {@link QueryBuilderHelper#FILTERED_FACET_PREFIX} followed by the field name.
+         *
+         * @param facetBuilderHelpers Additional facets to add to the request.
+         * @param strategy The strategy to apply on the facets of the filtered fields.
+         */
+        ISearchQueryBuilderHelper facets(List<IFacetBuilderHelper> facetBuilderHelpers, FacetStrategy strategy);
+
         /**
          * Execute the given consumer to alter the search request builder.
          *
@@ -209,6 +284,16 @@ public class QueryHelper {
          */
         ISearchQueryBuilderHelper fieldSort(String fieldName, String fieldType, boolean desc);
 
+        /**
+         * Define if the exact number of hits is required (default is true). When it is not and the sort of the request matches the index sort of all
+         * the requested classes (see {@link org.elasticsearch.annotation.IndexSettings#sortFields()}), the total hits are not tracked so the shards can
+         * stop collecting documents once they have enough hits. The total hits of the response is then -1.
+         *
+         * @param exactTotalHits False if the exact number of hits is not required.
+         * @return this
+         */
+        ISearchQueryBuilderHelper exactTotalHits(boolean exactTotalHits);
+
         /**
          * Add a fetch context to the query.
          *
@@ -216,6 +301,15 @@ public class QueryHelper {
          */
         ISearchQueryBuilderHelper fetchContext(String fetchContext);
 
+        /**
+         * Add a fetch context to the query, optionally fetching the fields from the stored fields and doc values rather than from the _source.
+         *
+         * @param fetchContext The fetch context to add to the query.
+         * @param sourceLess If true and all the fields included by the context are stored or have doc values, fetch them as stored fields and doc value
+         *            fields so the _source is not loaded. Hits then contain the fields but no source. Otherwise the source is filtered as usual.
+         */
+        ISearchQueryBuilderHelper fetchContext(String fetchContext, boolean sourceLess);
+
         /**
          * Apply the fetch context to the given aggregation (BUT DOES NOT add it to the query).
          * 
@@ -224,17 +318,61 @@ public class QueryHelper {
          * @return The search query builder helper with the top
          */
         ISearchQueryBuilderHelper fetchContext(String fetchContext, TopHitsAggregationBuilder topHitsBuilder);
+
+        /**
+         * Iterate over all the terms (and their document count) of a terms facet field for the current query and filters. Terms are retrieved page by
+         * page using a composite aggregation so high cardinality fields can be listed without a huge terms aggregation. When the facets are computed
+         * with {@link FacetStrategy#POST_FILTER} the terms are counted with the same filters as the facet of the field.
+         *
+         * @param esFieldName The name of the field of a {@link org.elasticsearch.annotation.query.TermsFacet} annotation defined with allTerms.
+         * @param pageSize The number of terms to retrieve per request.
+         * @return An iterator over the buckets of the composite aggregation.
+         */
+        Iterator<CompositeAggregation.Bucket> allTerms(String esFieldName, int pageSize);
+
+        /**
+         * Enable or disable the profiling of the search request. When not set the request is profiled based on the sample rate of the
+         * {@link QueryProfiler}. The profile of the request is handed to the {@link IQueryProfileSink} along with the generated query json.
+         *
+         * @param profile True to profile the request, false to never profile it.
+         * @return this
+         */
+        ISearchQueryBuilderHelper profile(boolean profile);
     }
 
     public static class QueryBuilderHelper implements ISearchQueryBuilderHelper {
+        /** Prefix of the name of the filter aggregations that wraps the facets of a field when using {@link FacetStrategy#POST_FILTER}. */
+        public static final String FILTERED_FACET_PREFIX = "filtered_";
+        /** Format of the doc value fields: the format of the field mapping (dates are formatted as in the source). */
+        private static final String DOC_VALUE_FORMAT = "use_field_mapping";
+
         protected final MappingBuilder mappingBuilder;
         protected final ElasticSearchClient esClient;
         protected QueryBuilder queryBuilder;
         protected String prefixField;
         protected Class<?>[] classes;
-        protected Map<String, String[]> filters;
+        protected Map<String, FilterSpec> filters;
+        /** Query before the annotation based filters are applied, used to move the facets filters to the post filter. */
+        protected QueryBuilder unfilteredQueryBuilder;
+        protected Map<String, FilterValuesStrategy> filterStrategies;
+        protected QueryBuilder[] customFilters;
         protected SearchRequestBuilder searchRequestBuilder;
+        /** Indices and options given to prepareSearch, before the time partitions pruning. */
+        private String[] requestedIndices;
+        private IndicesOptions requestedIndicesOptions;
+        protected FacetCache facetCache;
+        protected QueryProfiler queryProfiler;
+        protected TermsLookupStore termsLookupStore;
         private boolean fieldSort = false;
+        /** Fields of the requested sorts in order, associated to true for a descending sort. */
+        private final Map<String, Boolean> requestedSorts = new LinkedHashMap<String, Boolean>();
+        private boolean exactTotalHits = true;
+        /** Explicit profiling flag, null to rely on the profiler sampling. */
+        private Boolean profile;
+        /** Facets aggregations that are added to the request only if they are not available from the facet cache. */
+        private final List<AggregationBuilder> cacheableAggregations = Lists.newArrayList();
+        /** Filters of the facets computed with the post filter strategy by facet field. */
+        private final Map<String, QueryBuilder> postFilterFacetFilters = Maps.newHashMap();
 
         private QueryBuilderHelper(MappingBuilder mappingBuilder, ElasticSearchClient esClient) {
             this.queryBuilder = QueryBuilders.matchAllQuery();
@@ -243,8 +381,13 @@ public class QueryHelper {
         }
 
         protected QueryBuilderHelper(MappingBuilder mappingBuilder, ElasticSearchClient esClient, int maxExpansions, String searchQuery) {
+            this(mappingBuilder, esClient, maxExpansions, searchQuery, SearchQueryMode.PHRASE_PREFIX);
+        }
+
+        protected QueryBuilderHelper(MappingBuilder mappingBuilder, ElasticSearchClient esClient, int maxExpansions, String searchQuery,
+                SearchQueryMode searchQueryMode) {
             //this.queryBuilder = getOrMatchAll(searchQuery, () -> QueryBuilders.prefixQuery("_all", searchQuery));
-            this.queryBuilder = getOrMatchAll(searchQuery, () -> QueryBuilders.matchPhrasePrefixQuery("all", searchQuery).maxExpansions(maxExpansions));
+            this.queryBuilder = getOrMatchAll(searchQuery, () -> buildAllQuery(searchQuery, searchQueryMode, maxExpansions));
             this.mappingBuilder = mappingBuilder;
             this.esClient = esClient;
         }
@@ -261,6 +404,31 @@ public class QueryHelper {
             this.prefixField = from.prefixField;
             this.mappingBuilder = from.mappingBuilder;
             this.esClient = from.esClient;
+            this.facetCache = from.facetCache;
+            this.queryProfiler = from.queryProfiler;
+            this.termsLookupStore = from.termsLookupStore;
+        }
+
+        private QueryBuilder buildAllQuery(String searchQuery, SearchQueryMode searchQueryMode, int maxExpansions) {
+            String allField = FieldsMappingBuilder.ALL_FIELD;
+            if (SearchQueryMode.EDGE_NGRAM.equals(searchQueryMode)) {
+                return QueryBuilders.matchQuery(allField + "." + FieldsMappingBuilder.ALL_PREFIX_FIELD, searchQuery).operator(Operator.AND);
+            }
+            if (SearchQueryMode.INDEX_PREFIXES.equals(searchQueryMode)) {
+                String trimmed = searchQuery.trim();
+                int lastSpace = trimmed.lastIndexOf(' ');
+                // prefix queries are not analyzed so the prefix is lower cased as the all field terms.
+                QueryBuilder prefixQuery = QueryBuilders.prefixQuery(allField, trimmed.substring(lastSpace + 1).toLowerCase());
+                if (lastSpace < 0) {
+                    return prefixQuery;
+                }
+                return QueryBuilders.boolQuery().must(QueryBuilders.matchQuery(allField, trimmed.substring(0, lastSpace)).operator(Operator.AND))
+                        .must(prefixQuery);
+            }
+            if (SearchQueryMode.PHRASE.equals(searchQueryMode)) {
+                return QueryBuilders.matchPhraseQuery(allField, searchQuery);
+            }
+            return QueryBuilders.matchPhrasePrefixQuery(allField, searchQuery).maxExpansions(maxExpansions);
         }
 
         private QueryBuilder getOrMatchAll(String search, Supplier<QueryBuilder> supplier) {
@@ -297,6 +465,9 @@ public class QueryHelper {
         @Override
         public QueryBuilderHelper alterQuery(QueryBuilderAdapter queryBuilderConsumer) {
             queryBuilder = queryBuilderConsumer.adapt(this.queryBuilder);
+            if (unfilteredQueryBuilder != null) {
+                unfilteredQueryBuilder = queryBuilderConsumer.adapt(unfilteredQueryBuilder);
+            }
             if (searchRequestBuilder != null) {
                 searchRequestBuilder.setQuery(queryBuilder);
             }
@@ -318,7 +489,7 @@ public class QueryHelper {
                 countRequestBuilder.setTypes(types);
             }**/
             countRequestBuilder.setSize(0).setQuery(this.queryBuilder);
-            return countRequestBuilder.execute().actionGet();
+            return esClient.execute("count", getMetricsTag(indices), countRequestBuilder);
         }
 
         @Override
@@ -333,12 +504,22 @@ public class QueryHelper {
             this.searchRequestBuilder.setSearchType(SearchType.QUERY_THEN_FETCH);
             this.searchRequestBuilder.setQuery(queryBuilder);
             this.searchRequestBuilder.setIndices(indices);
+            this.requestedIndices = indices;
+            this.requestedIndicesOptions = this.searchRequestBuilder.request().indicesOptions();
+            String[] storedFields = mappingBuilder.getSourceLessStoredFields(classes);
+            if (storedFields != null) {
+                // documents without _source are retrieved from their stored fields.
+                this.searchRequestBuilder.storedFields(storedFields);
+            }
             return this;
         }
 
         @Override
         public QueryBuilderHelper filters(QueryBuilder... customFilter) {
             this.queryBuilder = addFilters(queryBuilder, Lists.newArrayList(customFilter));
+            if (unfilteredQueryBuilder != null && customFilter.length > 0) {
+                unfilteredQueryBuilder = addFilters(unfilteredQueryBuilder, Lists.newArrayList(customFilter));
+            }
             return this;
         }
 
@@ -349,7 +530,21 @@ public class QueryHelper {
 
         @Override
         public QueryBuilderHelper filters(Map<String, String[]> filters, Map<String, FilterValuesStrategy> filterStrategies, QueryBuilder... customFilters) {
+            return this.filterSpecs(FilterSpec.fromStrings(filters), filterStrategies, customFilters);
+        }
+
+        @Override
+        public QueryBuilderHelper filterSpecs(Map<String, FilterSpec> filters, QueryBuilder... customFilters) {
+            return this.filterSpecs(filters, null, customFilters);
+        }
+
+        @Override
+        public QueryBuilderHelper filterSpecs(Map<String, FilterSpec> filters, Map<String, FilterValuesStrategy> filterStrategies,
+                QueryBuilder... customFilters) {
             this.filters = filters;
+            this.filterStrategies = filterStrategies;
+            this.customFilters = customFilters;
+            this.unfilteredQueryBuilder = this.queryBuilder;
             if (classes != null && classes.length > 0) {
                 QueryBuilder filteredQueryBuilder = addFilters(this.queryBuilder, classes[0], filters, filterStrategies, customFilters);
                 if (filteredQueryBuilder != null) {
@@ -362,7 +557,7 @@ public class QueryHelper {
             return this;
         }
 
-        private QueryBuilder addFilters(QueryBuilder query, Class<?> clazz, Map<String, String[]> filters, Map<String, FilterValuesStrategy> filterStrategies,
+        private QueryBuilder addFilters(QueryBuilder query, Class<?> clazz, Map<String, FilterSpec> filters, Map<String, FilterValuesStrategy> filterStrategies,
                 QueryBuilder... customFilters) {
             if (clazz == null) {
                 return query;
@@ -400,7 +595,7 @@ public class QueryHelper {
             return result;
         }
 
-        private List<QueryBuilder> buildFilters(String className, Map<String, String[]> filters, Map<String, FilterValuesStrategy> filterStrategies) {
+        private List<QueryBuilder> buildFilters(String className, Map<String, FilterSpec> filters, Map<String, FilterValuesStrategy> filterStrategies) {
             List<QueryBuilder> filterBuilders = new ArrayList<QueryBuilder>();
 
             if (filters == null) {
@@ -440,13 +635,14 @@ public class QueryHelper {
             return filterBuilders;
         }
 
-        private List<QueryBuilder> buildFilters(IFilterBuilderHelper filterBuilderHelper, String esFieldName, String[] values, FilterValuesStrategy strategy) {
+        private List<QueryBuilder> buildFilters(IFilterBuilderHelper filterBuilderHelper, String esFieldName, FilterSpec filterSpec,
+                FilterValuesStrategy strategy) {
             if (strategy == null || FilterValuesStrategy.OR.equals(strategy)) {
-                return Lists.newArrayList(filterBuilderHelper.buildFilter(esFieldName, values));
+                return Lists.newArrayList(filterBuilderHelper.buildFilter(esFieldName, filterSpec, termsLookupStore));
             }
             List<QueryBuilder> valuesFilters = Lists.newArrayList();
-            for (String value : values) {
-                valuesFilters.add(filterBuilderHelper.buildFilter(esFieldName, value));
+            for (FilterSpec valueSpec : filterSpec.split()) {
+                valuesFilters.add(filterBuilderHelper.buildFilter(esFieldName, valueSpec));
             }
             return valuesFilters;
         }
@@ -466,14 +662,207 @@ public class QueryHelper {
         @Override
         public SearchResponse execute(int from, int size) {
             //searchRequestBuilder.setTypes(getTypes());
+            pruneTimePartitions();
             if (prefixField == null) {
                 if (!fieldSort) {
                     searchRequestBuilder.addSort(SortBuilders.scoreSort());
                 }
             } else {
-                searchRequestBuilder.addSort(SortBuilders.fieldSort(prefixField));
+                searchRequestBuilder.addSort(SortBuilders.fieldSort(getSortField(prefixField)));
+                requestedSorts.put(prefixField, false);
+            }
+            if (!exactTotalHits && isIndexSorted()) {
+                // shards can terminate early when the sort is the index sort and the total hits are not required.
+                searchRequestBuilder.setTrackTotalHits(false);
+            }
+            searchRequestBuilder.setFrom(from).setSize(size);
+            boolean profiling = queryProfiler != null && (profile == null ? queryProfiler.sample() : profile);
+            if (profiling) {
+                searchRequestBuilder.setProfile(true);
+            }
+            SearchResponse response = cacheableAggregations.isEmpty() ? executeSearch() : executeWithFacetCache();
+            if (profiling) {
+                queryProfiler.report(QueryProfile.from(getClassNames(), searchRequestBuilder.request().indices(),
+                        String.valueOf(searchRequestBuilder.request().source()), response));
+            }
+            return response;
+        }
+
+        /**
+         * When all the requested classes are partitioned by time on the same timestamp (see {@link TimePartition}) and the filters contain a date range
+         * on this timestamp, the requested base indices (registered for all the classes) are replaced by their partitions that overlap the range.
+         * Partitions that do not exist are ignored, other requested indices (concrete partitions, patterns) are searched as requested. The pruned
+         * indices are always computed from the indices given to {@link #prepareSearch(String...)} so the search can be executed again.
+         */
+        private void pruneTimePartitions() {
+            searchRequestBuilder.setIndices(requestedIndices);
+            searchRequestBuilder.setIndicesOptions(requestedIndicesOptions);
+            if (filters == null || classes == null || classes.length == 0) {
+                return;
+            }
+            TimePartition timePartition = null;
+            String timeStampField = null;
+            for (Class<?> clazz : classes) {
+                if (clazz == null) {
+                    continue;
+                }
+                TimePartition classTimePartition = mappingBuilder.getTimePartition(clazz.getName());
+                String classTimeStampField = mappingBuilder.getTimeStampField(clazz.getName());
+                if (TimePartition.NONE.equals(classTimePartition)
+                        || (timePartition != null && (!timePartition.equals(classTimePartition) || !timeStampField.equals(classTimeStampField)))) {
+                    return;
+                }
+                timePartition = classTimePartition;
+                timeStampField = classTimeStampField;
+            }
+            FilterSpec timeRange = timeStampField == null ? null : filters.get(timeStampField);
+            if (timeRange == null || !FilterSpec.Kind.DATE_RANGE.equals(timeRange.getKind())) {
+                return;
+            }
+            List<String> indices = Lists.newArrayList();
+            boolean pruned = false;
+            for (String index : requestedIndices) {
+                if (!isTimePartitionBaseIndex(index)) {
+                    indices.add(index);
+                    continue;
+                }
+                String[] indexPartitions = TimePartitions.indexNames(index, timePartition, timeRange.getFromMillis(), timeRange.getToMillis());
+                if (indexPartitions == null || indexPartitions.length == 0) {
+                    // unbounded or empty range.
+                    return;
+                }
+                indices.addAll(Arrays.asList(indexPartitions));
+                pruned = true;
+            }
+            if (pruned) {
+                searchRequestBuilder.setIndices(indices.toArray(new String[indices.size()]));
+                searchRequestBuilder.setIndicesOptions(IndicesOptions.lenientExpandOpen());
+            }
+        }
+
+        private boolean isTimePartitionBaseIndex(String index) {
+            for (Class<?> clazz : classes) {
+                if (clazz != null && !mappingBuilder.isTimePartitionBaseIndex(clazz.getName(), index)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public QueryBuilderHelper exactTotalHits(boolean exactTotalHits) {
+            this.exactTotalHits = exactTotalHits;
+            return this;
+        }
+
+        /**
+         * Check if the requested sorts are a prefix of the index sort of all the requested classes.
+         */
+        private boolean isIndexSorted() {
+            if (requestedSorts.isEmpty() || classes == null || classes.length == 0) {
+                return false;
+            }
+            for (Class<?> clazz : classes) {
+                if (clazz == null) {
+                    continue;
+                }
+                Iterator<Map.Entry<String, Boolean>> indexSort = mappingBuilder.getIndexSort(clazz.getName()).entrySet().iterator();
+                for (Map.Entry<String, Boolean> requestedSort : requestedSorts.entrySet()) {
+                    if (!indexSort.hasNext() || !requestedSort.equals(indexSort.next())) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public QueryBuilderHelper profile(boolean profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        private SearchResponse executeSearch() {
+            return esClient.execute("search", getMetricsTag(searchRequestBuilder.request().indices()), searchRequestBuilder);
+        }
+
+        /**
+         * Get the tag of the metrics of the current request: the simple names of the requested classes or the indices if no classes are defined.
+         */
+        protected String getMetricsTag(String[] indices) {
+            if (classes == null || classes.length == 0) {
+                return indices == null ? "" : String.join(",", indices);
+            }
+            return Stream.of(classes).filter(Objects::nonNull).map(Class::getSimpleName).collect(Collectors.joining(","));
+        }
+
+        private List<String> getClassNames() {
+            List<String> classNames = Lists.newArrayList();
+            if (classes != null) {
+                for (Class<?> clazz : classes) {
+                    if (clazz != null) {
+                        classNames.add(clazz.getName());
+                    }
+                }
+            }
+            return classNames;
+        }
+
+        private SearchResponse executeWithFacetCache() {
+            FacetCache.Key key = facetCacheKey();
+            InternalAggregations cachedAggregations = facetCache.get(key);
+            if (cachedAggregations != null) {
+                log.debug("Facets for indices <{}> retrieved from cache.", Arrays.toString(searchRequestBuilder.request().indices()));
+                return withFacets(executeSearch(), cachedAggregations);
+            }
+
+            for (AggregationBuilder aggregation : cacheableAggregations) {
+                searchRequestBuilder.addAggregation(aggregation);
+            }
+            SearchResponse response = executeSearch();
+            if (!response.isTimedOut() && response.getFailedShards() == 0 && response.getAggregations() != null) {
+                Set<String> facetNames = Sets.newHashSet();
+                for (AggregationBuilder aggregation : cacheableAggregations) {
+                    facetNames.add(aggregation.getName());
+                }
+                List<InternalAggregation> facets = Lists.newArrayList();
+                for (Aggregation aggregation : response.getAggregations()) {
+                    if (facetNames.contains(aggregation.getName())) {
+                        facets.add((InternalAggregation) aggregation);
+                    }
+                }
+                facetCache.put(key, new InternalAggregations(facets));
             }
-            return searchRequestBuilder.setFrom(from).setSize(size).execute().actionGet();
+            return response;
+        }
+
+        private FacetCache.Key facetCacheKey() {
+            List<String> classNames = getClassNames();
+            // the query and post filter of the request contains the normalized filters.
+            SearchSourceBuilder source = searchRequestBuilder.request().source();
+            String query = String.valueOf(source.query()) + String.valueOf(source.postFilter());
+            return new FacetCache.Key(classNames, searchRequestBuilder.request().indices(), query, cacheableAggregations.toString());
+        }
+
+        /**
+         * Add the facets retrieved from the cache to the aggregations of the response.
+         */
+        private SearchResponse withFacets(SearchResponse response, InternalAggregations facets) {
+            List<InternalAggregation> aggregations = Lists.newArrayList();
+            if (response.getAggregations() != null) {
+                for (Aggregation aggregation : response.getAggregations()) {
+                    aggregations.add((InternalAggregation) aggregation);
+                }
+            }
+            for (Aggregation aggregation : facets) {
+                aggregations.add((InternalAggregation) aggregation);
+            }
+            SearchProfileShardResults profileResults = response.getProfileResults() == null || response.getProfileResults().isEmpty() ? null
+                    : new SearchProfileShardResults(response.getProfileResults());
+            InternalSearchResponse sections = new InternalSearchResponse(response.getHits(), new InternalAggregations(aggregations), response.getSuggest(),
+                    profileResults, response.isTimedOut(), response.isTerminatedEarly(), response.getNumReducePhases());
+            return new SearchResponse(sections, response.getScrollId(), response.getTotalShards(), response.getSuccessfulShards(),
+                    response.getSkippedShards(), response.getTook().millis(), response.getShardFailures(), response.getClusters());
         }
 
         protected String[] getTypes() {
@@ -503,13 +892,21 @@ public class QueryHelper {
             return this;
         }
 
+        private String getSortField(String fieldName) {
+            if (classes == null || classes.length == 0) {
+                return fieldName;
+            }
+            return mappingBuilder.getSortField(classes[0].getName(), fieldName);
+        }
+
         @Override
         public QueryBuilderHelper fieldSort(String fieldName, String fieldType, boolean desc) {
             if (fieldName == null) {
                 return this;
             }
             fieldSort = true;
-            FieldSortBuilder sortBuilder = SortBuilders.fieldSort(fieldName);
+            requestedSorts.put(fieldName, desc);
+            FieldSortBuilder sortBuilder = SortBuilders.fieldSort(getSortField(fieldName));
             if (desc) {
                 sortBuilder.order(SortOrder.DESC);
             } else {
@@ -523,13 +920,25 @@ public class QueryHelper {
 
         @Override
         public QueryBuilderHelper fetchContext(String fetchContext) {
+            return fetchContext(fetchContext, false);
+        }
+
+        @Override
+        public QueryBuilderHelper fetchContext(String fetchContext, boolean sourceLess) {
             if (fetchContext == null) {
                 return this;
             }
 
-            String[][] incExc = includeExcludes(fetchContext);
-
-            searchRequestBuilder.setFetchSource(incExc[0], incExc[1]);
+            ResolvedFetchContext resolvedFetchContext = mappingBuilder.getFetchSource(classes, fetchContext);
+            if (sourceLess && resolvedFetchContext.isSourceLess()) {
+                searchRequestBuilder.setFetchSource(false);
+                searchRequestBuilder.storedFields(resolvedFetchContext.getStoredFields());
+                for (String docValueField : resolvedFetchContext.getDocValueFields()) {
+                    searchRequestBuilder.addDocValueField(docValueField, DOC_VALUE_FORMAT);
+                }
+                return this;
+            }
+            searchRequestBuilder.setFetchSource(resolvedFetchContext.getIncludes(), resolvedFetchContext.getExcludes());
             return this;
         }
 
@@ -539,32 +948,45 @@ public class QueryHelper {
                 return this;
             }
 
-            String[][] incExc = includeExcludes(fetchContext);
-
-            aggregation.fetchSource(incExc[0], incExc[1]);
+            ResolvedFetchContext resolvedFetchContext = mappingBuilder.getFetchSource(classes, fetchContext);
+            aggregation.fetchSource(resolvedFetchContext.getIncludes(), resolvedFetchContext.getExcludes());
             return this;
         }
 
-        private String[][] includeExcludes(String fetchContext) {
-            List<String> includes = new ArrayList<String>();
-            List<String> excludes = new ArrayList<String>();
+        @Override
+        public Iterator<CompositeAggregation.Bucket> allTerms(String esFieldName, int pageSize) {
+            TermsAggregationBuilderHelper termsFacet = getTermsFacet(esFieldName);
+            if (termsFacet == null || !termsFacet.isAllTerms()) {
+                throw new IllegalArgumentException("No terms facet with allTerms is defined for field <" + esFieldName + ">.");
+            }
+            final String[] indices = searchRequestBuilder.request().indices();
+            QueryBuilder facetFilter = postFilterFacetFilters.get(esFieldName);
+            if (facetFilter == null) {
+                facetFilter = searchRequestBuilder.request().source().postFilter();
+            }
+            QueryBuilder searchQuery = searchRequestBuilder.request().source().query();
+            final QueryBuilder query = facetFilter == null ? searchQuery
+                    : QueryBuilders.boolQuery().must(searchQuery == null ? QueryBuilders.matchAllQuery() : searchQuery).filter(facetFilter);
+            return new CompositeFacetIterator(afterKey -> {
+                SearchResponse response = esClient.execute("composite_facet", getMetricsTag(indices), esClient.getClient().prepareSearch(indices)
+                        .setQuery(query).setSize(0).addAggregation(termsFacet.buildCompositeFacet(afterKey, pageSize)));
+                return response.getAggregations() == null ? null : response.getAggregations().get(termsFacet.getEsFieldName());
+            });
+        }
 
+        private TermsAggregationBuilderHelper getTermsFacet(String esFieldName) {
             for (Class<?> clazz : classes) {
-                if (clazz != null) {
-                    // get the fetch context for the given type and apply it to the search
-                    SourceFetchContext sourceFetchContext = mappingBuilder.getFetchSource(clazz.getName(), fetchContext);
-                    if (sourceFetchContext != null) {
-                        includes.addAll(sourceFetchContext.getIncludes());
-                        excludes.addAll(sourceFetchContext.getExcludes());
-                    } else {
-                        log.debug("Unable to find fetch context <" + fetchContext + "> for class <" + clazz.getName() + ">. It will be ignored.");
+                List<IFacetBuilderHelper> facetBuilderHelpers = clazz == null ? null : mappingBuilder.getFacets(clazz.getName());
+                if (facetBuilderHelpers == null) {
+                    continue;
+                }
+                for (IFacetBuilderHelper facetBuilderHelper : facetBuilderHelpers) {
+                    if (facetBuilderHelper instanceof TermsAggregationBuilderHelper && esFieldName.equals(facetBuilderHelper.getEsFieldName())) {
+                        return (TermsAggregationBuilderHelper) facetBuilderHelper;
                     }
                 }
             }
-
-            String[] inc = includes.isEmpty() ? null : includes.toArray(new String[includes.size()]);
-            String[] exc = excludes.isEmpty() ? null : excludes.toArray(new String[excludes.size()]);
-            return new String[][] { inc, exc };
+            return null;
         }
 
         @Override
@@ -574,7 +996,23 @@ public class QueryHelper {
 
         @Override
         public QueryBuilderHelper facets(List<IFacetBuilderHelper> facetBuilderHelpers) {
+            return facets(facetBuilderHelpers, FacetStrategy.EXCLUDE_FILTERED);
+        }
+
+        @Override
+        public QueryBuilderHelper facets(FacetStrategy strategy) {
+            return facets(new ArrayList<>(), strategy);
+        }
+
+        @Override
+        public QueryBuilderHelper facets(List<IFacetBuilderHelper> facetBuilderHelpers, FacetStrategy strategy) {
             Set<String> aggIds = Sets.newHashSet();
+            cacheableAggregations.clear();
+            postFilterFacetFilters.clear();
+            if (FacetStrategy.POST_FILTER.equals(strategy)) {
+                addPostFilterAggregations(aggIds, facetBuilderHelpers);
+                return this;
+            }
             for (Class<?> clazz : classes) {
                 if (filters == null) {
                     addAggregations(new HashMap(), clazz.getName(), searchRequestBuilder, aggIds,facetBuilderHelpers);
@@ -585,16 +1023,87 @@ public class QueryHelper {
             return this;
         }
 
-        private void addAggregations(Map<String, String[]> filters, String className, SearchRequestBuilder searchRequestBuilder, Set<String> aggIds,List<IFacetBuilderHelper> facetBuilderHelpers) {
+        private void addAggregations(Map<String, FilterSpec> filters, String className, SearchRequestBuilder searchRequestBuilder, Set<String> aggIds,List<IFacetBuilderHelper> facetBuilderHelpers) {
             final List<AggregationBuilder> aggregations = buildAggregations(className, filters.keySet(),facetBuilderHelpers);
             for (AggregationBuilder aggregation : aggregations) {
-                if (!aggIds.contains(aggregation.getName())) {
-                    aggIds.add(aggregation.getName());
+                addAggregation(aggregation, aggIds);
+            }
+        }
+
+        private void addAggregation(AggregationBuilder aggregation, Set<String> aggIds) {
+            if (!aggIds.contains(aggregation.getName())) {
+                aggIds.add(aggregation.getName());
+                if (facetCache != null && facetCache.isEnabled()) {
+                    // aggregations will be added at execution time if not found in the cache.
+                    cacheableAggregations.add(aggregation);
+                } else {
                     searchRequestBuilder.addAggregation(aggregation);
                 }
             }
         }
 
+        /**
+         * Move the filters of the faceted fields from the query to the post filter and compute each facet in a filter aggregation of the other facets
+         * filters so the counts of the selected values are kept.
+         */
+        private void addPostFilterAggregations(Set<String> aggIds, List<IFacetBuilderHelper> externalHelpers) {
+            Map<String, IFacetBuilderHelper> facetBuilderHelpers = Maps.newLinkedHashMap();
+            for (IFacetBuilderHelper facetBuilderHelper : externalHelpers) {
+                facetBuilderHelpers.putIfAbsent(facetBuilderHelper.getEsFieldName(), facetBuilderHelper);
+            }
+            for (Class<?> clazz : classes) {
+                List<IFacetBuilderHelper> classFacets = clazz == null ? null : mappingBuilder.getFacets(clazz.getName());
+                if (classFacets != null) {
+                    for (IFacetBuilderHelper facetBuilderHelper : classFacets) {
+                        facetBuilderHelpers.putIfAbsent(facetBuilderHelper.getEsFieldName(), facetBuilderHelper);
+                    }
+                }
+            }
+
+            // filters are always built based on the first class (as in filters method).
+            String className = classes[0].getName();
+            Map<String, FilterSpec> facetFilters = Maps.newHashMap();
+            if (filters != null && unfilteredQueryBuilder != null) {
+                Map<String, FilterSpec> queryFilters = Maps.newHashMap();
+                for (Entry<String, FilterSpec> filter : filters.entrySet()) {
+                    if (facetBuilderHelpers.containsKey(filter.getKey())) {
+                        facetFilters.put(filter.getKey(), filter.getValue());
+                    } else {
+                        queryFilters.put(filter.getKey(), filter.getValue());
+                    }
+                }
+                QueryBuilder filteredQueryBuilder = addFilters(unfilteredQueryBuilder, classes[0], queryFilters, filterStrategies, customFilters);
+                queryBuilder = filteredQueryBuilder == null ? unfilteredQueryBuilder : filteredQueryBuilder;
+                searchRequestBuilder.setQuery(queryBuilder);
+                List<QueryBuilder> postFilters = buildFilters(className, facetFilters, filterStrategies);
+                if (!postFilters.isEmpty()) {
+                    searchRequestBuilder.setPostFilter(getAndFilter(postFilters));
+                }
+            }
+
+            for (IFacetBuilderHelper facetBuilderHelper : facetBuilderHelpers.values()) {
+                Map<String, FilterSpec> otherFacetFilters = Maps.newHashMap(facetFilters);
+                otherFacetFilters.remove(facetBuilderHelper.getEsFieldName());
+                List<QueryBuilder> otherFilters = buildFilters(className, otherFacetFilters, filterStrategies);
+                QueryBuilder facetFilter = otherFilters.isEmpty() ? QueryBuilders.matchAllQuery() : getAndFilter(otherFilters);
+                postFilterFacetFilters.put(facetBuilderHelper.getEsFieldName(), facetFilter);
+                FilterAggregationBuilder filteredFacet = AggregationBuilders.filter(FILTERED_FACET_PREFIX + facetBuilderHelper.getEsFieldName(),
+                        facetFilter);
+                for (AggregationBuilder aggregation : facetBuilderHelper.buildFacets()) {
+                    if (aggregation instanceof CompositeAggregationBuilder) {
+                        // composite aggregations cannot have a filter aggregation as parent.
+                        log.warn("Composite facet <" + aggregation.getName()
+                                + "> is not computed with the post filter strategy, use allTerms to page its terms.");
+                    } else {
+                        filteredFacet.subAggregation(aggregation);
+                    }
+                }
+                if (!filteredFacet.getSubAggregations().isEmpty()) {
+                    addAggregation(filteredFacet, aggIds);
+                }
+            }
+        }
+
         /**
          * Create a list of aggregations counts for the given type.
          *
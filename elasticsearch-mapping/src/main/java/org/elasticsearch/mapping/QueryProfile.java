@@ -0,0 +1,152 @@
+package org.elasticsearch.mapping;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+
+/**
+ * Compact view of the elastic search profile results of a query: per shard query, rewrite and collector time and per aggregation time. All times are in
+ * nanoseconds except the took time.
+ */
+public class QueryProfile {
+    private final List<String> classNames;
+    private final String[] indices;
+    private final String query;
+    private final long tookMillis;
+    private final List<ShardProfile> shards = new ArrayList<ShardProfile>();
+
+    public QueryProfile(List<String> classNames, String[] indices, String query, long tookMillis) {
+        this.classNames = classNames;
+        this.indices = indices;
+        this.query = query;
+        this.tookMillis = tookMillis;
+    }
+
+    /**
+     * Create a query profile from the profile results of a search response.
+     *
+     * @param classNames The names of the classes that have been searched.
+     * @param indices The searched indices.
+     * @param query The json of the search request source.
+     * @param response The response of a search request executed with profiling enabled.
+     * @return The compact profile of the query.
+     */
+    public static QueryProfile from(List<String> classNames, String[] indices, String query, SearchResponse response) {
+        QueryProfile queryProfile = new QueryProfile(classNames, indices, query, response.getTook().millis());
+        if (response.getProfileResults() != null) {
+            for (Entry<String, ProfileShardResult> shardResult : response.getProfileResults().entrySet()) {
+                queryProfile.shards.add(ShardProfile.from(shardResult.getKey(), shardResult.getValue()));
+            }
+        }
+        return queryProfile;
+    }
+
+    public List<String> getClassNames() {
+        return classNames;
+    }
+
+    public String[] getIndices() {
+        return indices;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public long getTookMillis() {
+        return tookMillis;
+    }
+
+    public List<ShardProfile> getShards() {
+        return shards;
+    }
+
+    @Override
+    public String toString() {
+        return "QueryProfile [classNames=" + classNames + ", tookMillis=" + tookMillis + ", shards=" + shards + ", query=" + query + "]";
+    }
+
+    /**
+     * Profile of a query on a single shard.
+     */
+    public static class ShardProfile {
+        private final String shardId;
+        private long queryTime;
+        private long rewriteTime;
+        private long collectorTime;
+        /** Time of the aggregations by aggregation name, sub aggregations are named parent>child. */
+        private final Map<String, Long> aggregationTimes = new LinkedHashMap<String, Long>();
+
+        public ShardProfile(String shardId) {
+            this.shardId = shardId;
+        }
+
+        /**
+         * Create a shard profile from the elastic search profile of a shard.
+         *
+         * @param shardId The id of the shard.
+         * @param shardResult The elastic search profile results of the shard.
+         * @return The compact shard profile.
+         */
+        public static ShardProfile from(String shardId, ProfileShardResult shardResult) {
+            ShardProfile shardProfile = new ShardProfile(shardId);
+            for (QueryProfileShardResult queryResult : shardResult.getQueryProfileResults()) {
+                for (ProfileResult profileResult : queryResult.getQueryResults()) {
+                    shardProfile.queryTime += profileResult.getTime();
+                }
+                shardProfile.rewriteTime += queryResult.getRewriteTime();
+                if (queryResult.getCollectorResult() != null) {
+                    shardProfile.collectorTime += queryResult.getCollectorResult().getTime();
+                }
+            }
+            if (shardResult.getAggregationProfileResults() != null) {
+                for (ProfileResult aggregationResult : shardResult.getAggregationProfileResults().getProfileResults()) {
+                    shardProfile.addAggregation(null, aggregationResult);
+                }
+            }
+            return shardProfile;
+        }
+
+        private void addAggregation(String parentName, ProfileResult aggregationResult) {
+            // the lucene description of an aggregation profile is the name of the aggregation.
+            String name = parentName == null ? aggregationResult.getLuceneDescription() : parentName + ">" + aggregationResult.getLuceneDescription();
+            aggregationTimes.merge(name, aggregationResult.getTime(), Long::sum);
+            for (ProfileResult child : aggregationResult.getProfiledChildren()) {
+                addAggregation(name, child);
+            }
+        }
+
+        public String getShardId() {
+            return shardId;
+        }
+
+        public long getQueryTime() {
+            return queryTime;
+        }
+
+        public long getRewriteTime() {
+            return rewriteTime;
+        }
+
+        public long getCollectorTime() {
+            return collectorTime;
+        }
+
+        public Map<String, Long> getAggregationTimes() {
+            return aggregationTimes;
+        }
+
+        @Override
+        public String toString() {
+            return "ShardProfile [shardId=" + shardId + ", queryTime=" + queryTime + ", rewriteTime=" + rewriteTime + ", collectorTime=" + collectorTime
+                    + ", aggregationTimes=" + aggregationTimes + "]";
+        }
+    }
+}
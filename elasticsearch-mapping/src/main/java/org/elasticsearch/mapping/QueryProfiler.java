@@ -0,0 +1,60 @@
+package org.elasticsearch.mapping;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Decide which queries executed through {@link QueryHelper} are profiled and hand their profile to the {@link IQueryProfileSink}.
+ *
+ * Queries can be profiled explicitly on the query builder helper or sampled using elasticSearch.profile.sample_rate (between 0 and 1, defaults to 0 so no
+ * query is sampled). When no sink is defined in the context the profiles are logged.
+ */
+@Component
+@Slf4j
+public class QueryProfiler {
+    private double sampleRate = 0;
+    private IQueryProfileSink sink;
+
+    /**
+     * Check if the current query should be profiled based on the sample rate.
+     *
+     * @return True if the query should be profiled, false if not.
+     */
+    public boolean sample() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Hand the profile of a query to the sink.
+     *
+     * @param queryProfile The profile of the query.
+     */
+    public void report(QueryProfile queryProfile) {
+        if (sink == null) {
+            log.info("Profiled query <{}>", queryProfile);
+            return;
+        }
+        try {
+            sink.profile(queryProfile);
+        } catch (RuntimeException e) {
+            log.warn("Failed to handle query profile in sink <" + sink.getClass().getName() + ">.", e);
+        }
+    }
+
+    @Autowired(required = false)
+    public void setSink(IQueryProfileSink sink) {
+        this.sink = sink;
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.profile.sample_rate']}")
+    public void setSampleRate(final String sampleRate) {
+        if (sampleRate != null) {
+            this.sampleRate = Double.parseDouble(sampleRate.trim());
+        }
+    }
+}
@@ -63,6 +63,21 @@ public class RangeFilterBuilderHelper extends AbstractFilterBuilderHelper {
         return result;
     }
 
+    @Override
+    protected QueryBuilder buildTypedFilter(String key, FilterSpec filterSpec) {
+        if (!FilterSpec.Kind.RANGE.equals(filterSpec.getKind())) {
+            return super.buildTypedFilter(key, filterSpec);
+        }
+        RangeQueryBuilder filterBuilder = QueryBuilders.rangeQuery(key);
+        if (filterSpec.getFrom() != Double.NEGATIVE_INFINITY) {
+            filterBuilder.gte(filterSpec.getFrom());
+        }
+        if (filterSpec.getTo() != Double.POSITIVE_INFINITY) {
+            filterBuilder.lt(filterSpec.getTo());
+        }
+        return filterBuilder;
+    }
+
     private QueryBuilder buildSingleRangeFilter(String key, String value) {
         String[] values = value.split(" - ");
         if (value.length() == 0) {
@@ -0,0 +1,57 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Fields to fetch for a fetch context over a set of classes, computed once by the {@link MappingBuilder} and shared by all the queries using the context.
+ *
+ * Includes and excludes are the deduplicated source filters of the context (null when empty). When every included field is stored or has doc values that
+ * are the indexed value (single valued, not normalized nor rounded) and nothing is excluded, the stored fields and doc value fields allow to fetch the
+ * context without loading (and decompressing) the _source.
+ *
+ * The arrays are shared and must not be modified.
+ */
+public final class ResolvedFetchContext {
+    private final String[] includes;
+    private final String[] excludes;
+    private final String[] storedFields;
+    private final String[] docValueFields;
+
+    /**
+     * Create a resolved fetch context.
+     *
+     * @param includes The fields to include from the source or null.
+     * @param excludes The fields to exclude from the source or null.
+     * @param storedFields The fields to fetch as stored fields or null if the context must be fetched from the source.
+     * @param docValueFields The fields to fetch from the doc values or null if the context must be fetched from the source.
+     */
+    public ResolvedFetchContext(String[] includes, String[] excludes, String[] storedFields, String[] docValueFields) {
+        this.includes = includes;
+        this.excludes = excludes;
+        this.storedFields = storedFields;
+        this.docValueFields = docValueFields;
+    }
+
+    public String[] getIncludes() {
+        return includes;
+    }
+
+    public String[] getExcludes() {
+        return excludes;
+    }
+
+    public String[] getStoredFields() {
+        return storedFields;
+    }
+
+    public String[] getDocValueFields() {
+        return docValueFields;
+    }
+
+    /**
+     * Check if the context can be fetched without the _source (from stored fields and doc values only).
+     *
+     * @return True if all the fields of the context are stored or have doc values.
+     */
+    public boolean isSourceLess() {
+        return storedFields != null && docValueFields != null;
+    }
+}
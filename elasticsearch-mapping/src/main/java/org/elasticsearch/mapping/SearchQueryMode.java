@@ -0,0 +1,24 @@
+package org.elasticsearch.mapping;
+
+/**
+ * Defines the available queries on the all field for a search text.
+ */
+public enum SearchQueryMode {
+    /** Default mode, match phrase prefix query on the all field: the prefix of the last term is expanded at query time. */
+    PHRASE_PREFIX,
+    /**
+     * Match query (all terms are required) on the all.prefix edge n-gram sub field, prefixes are computed at index time. Requires
+     * {@link org.elasticsearch.annotation.ESAll#searchAsYouType()}.
+     */
+    EDGE_NGRAM,
+    /**
+     * Match query on the all field for the complete terms and prefix query for the last one. The prefix query is a single term lookup when
+     * {@link org.elasticsearch.annotation.ESAll#indexPrefixes()} is set and the prefix length is in the indexed range.
+     */
+    INDEX_PREFIXES,
+    /**
+     * Match phrase query on the all field, the two-term shingles are used rather than the positions when
+     * {@link org.elasticsearch.annotation.ESAll#indexPhrases()} is set.
+     */
+    PHRASE
+}
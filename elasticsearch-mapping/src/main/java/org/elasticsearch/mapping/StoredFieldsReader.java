@@ -0,0 +1,59 @@
+package org.elasticsearch.mapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.elasticsearch.common.document.DocumentField;
+import org.elasticsearch.search.SearchHit;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Rebuild typed objects from the fields of a search hit (stored fields and doc value fields) when the _source is disabled or not fetched (see
+ * {@link QueryHelper.ISearchQueryBuilderHelper#fetchContext(String, boolean)}).
+ *
+ * Fields of inner objects ("address.city") are set on the inner objects, single values are set on single valued properties and multiple values on
+ * collections or arrays. Properties that are not fetched are left to their default value.
+ */
+public final class StoredFieldsReader {
+    private static final ObjectMapper MAPPER = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .configure(DeserializationFeature.UNWRAP_SINGLE_VALUE_ARRAYS, true).configure(DeserializationFeature.ACCEPT_SINGLE_VALUE_AS_ARRAY, true);
+
+    private StoredFieldsReader() {
+    }
+
+    /**
+     * Rebuild an object from the fields of a search hit.
+     *
+     * @param hit The search hit.
+     * @param clazz The class of the object to build.
+     * @param <T> The type of the object to build.
+     * @return The object or null if the hit has no fields.
+     */
+    public static <T> T read(SearchHit hit, Class<T> clazz) {
+        if (hit.getFields() == null || hit.getFields().isEmpty()) {
+            return null;
+        }
+        Map<String, Object> values = new HashMap<String, Object>();
+        for (DocumentField field : hit.getFields().values()) {
+            put(values, field.getName(), field.getValues());
+        }
+        return MAPPER.convertValue(values, clazz);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void put(Map<String, Object> values, String path, Object value) {
+        int index = path.indexOf('.');
+        if (index < 0) {
+            values.put(path, value);
+            return;
+        }
+        Object inner = values.get(path.substring(0, index));
+        if (!(inner instanceof Map)) {
+            inner = new HashMap<String, Object>();
+            values.put(path.substring(0, index), inner);
+        }
+        put((Map<String, Object>) inner, path.substring(index + 1), value);
+    }
+}
@@ -1,11 +1,16 @@
 package org.elasticsearch.mapping;
 
 import java.util.List;
+import java.util.Map;
 
 import org.elasticsearch.annotation.query.TermsFacet;
 import com.google.common.collect.Lists;
 import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.aggregations.Aggregator.SubAggCollectionMode;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeValuesSourceBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.TermsValuesSourceBuilder;
 import org.elasticsearch.search.aggregations.bucket.missing.MissingAggregationBuilder;
 import org.elasticsearch.search.aggregations.bucket.terms.TermsAggregationBuilder;
 //import org.elasticsearch.search.facet.terms.TermsFacet.ComparatorType;
@@ -20,6 +25,10 @@ public class TermsAggregationBuilderHelper extends TermsFilterBuilderHelper impl
     private final boolean allTerms;
     //private final ComparatorType comparatorType;
     private final String[] exclude;
+    private final TermsExecutionHint executionHint;
+    private final int shardSize;
+    private final TermsCollectMode collectMode;
+    private final boolean missing;
 
     /**
      * Initialize from the configuration annotation.
@@ -30,21 +39,79 @@ public class TermsAggregationBuilderHelper extends TermsFilterBuilderHelper impl
      * @param termsFacet the configuration annotation.
      */
     public TermsAggregationBuilderHelper(final boolean isAnalyzed, final String nestedPath, final String esFieldName, TermsFacet termsFacet) {
-        super(isAnalyzed, nestedPath, esFieldName);
+        this(isAnalyzed, false, nestedPath, esFieldName, termsFacet);
+    }
+
+    /**
+     * Initialize from the configuration annotation.
+     * 
+     * @param isAnalyzed True if the filtered field is analyzed, false if not.
+     * @param keywordSubField True if the aggregation must be computed on the keyword sub field of the analyzed field.
+     * @param nestedPath The path to the nested object if any.
+     * @param esFieldName The name of the field on which to apply the filter.
+     * @param termsFacet the configuration annotation.
+     */
+    public TermsAggregationBuilderHelper(final boolean isAnalyzed, final boolean keywordSubField, final String nestedPath, final String esFieldName,
+            TermsFacet termsFacet) {
+        super(isAnalyzed, keywordSubField, nestedPath, esFieldName);
         this.size = termsFacet.size();
         this.allTerms = termsFacet.allTerms();
         //this.comparatorType = termsFacet.comparatorType();
         this.exclude = termsFacet.exclude();
+        this.executionHint = termsFacet.executionHint();
+        this.shardSize = termsFacet.shardSize();
+        this.collectMode = termsFacet.collectMode();
+        this.missing = termsFacet.missing();
+    }
+
+    /**
+     * Check if all the terms of the field can be paged through rather than only the most frequent ones returned by the facet.
+     *
+     * @return True if the facet is defined with allTerms.
+     */
+    public boolean isAllTerms() {
+        return allTerms;
     }
 
     @Override
     public List<AggregationBuilder> buildFacets() {
-        TermsAggregationBuilder termsBuilder = AggregationBuilders.terms(getEsFieldName()).field(getEsFieldName()).size(size);
-        MissingAggregationBuilder missingBuilder = AggregationBuilders.missing("missing_" + getEsFieldName()).field(getEsFieldName());
+        TermsAggregationBuilder termsBuilder = AggregationBuilders.terms(getEsFieldName()).field(getTermsField(getEsFieldName())).size(size);
+        if (!TermsExecutionHint.DEFAULT.equals(executionHint)) {
+            termsBuilder.executionHint(executionHint.getEsValue());
+        }
+        if (shardSize > 0) {
+            termsBuilder.shardSize(shardSize);
+        }
+        if (TermsCollectMode.BREADTH_FIRST.equals(collectMode)) {
+            termsBuilder.collectMode(SubAggCollectionMode.BREADTH_FIRST);
+        } else if (TermsCollectMode.DEPTH_FIRST.equals(collectMode)) {
+            termsBuilder.collectMode(SubAggCollectionMode.DEPTH_FIRST);
+        }
         // Elastic search has a bug with excludes so don't use it. https://github.com/elastic/elasticsearch/issues/18575
         // if (exclude != null) {
         // termsBuilder.exclude(exclude);
         // }
+        if (!missing) {
+            return Lists.newArrayList(termsBuilder);
+        }
+        MissingAggregationBuilder missingBuilder = AggregationBuilders.missing("missing_" + getEsFieldName()).field(getTermsField(getEsFieldName()));
         return Lists.newArrayList(termsBuilder, missingBuilder);
     }
+
+    /**
+     * Build a composite aggregation to page over all the terms of the field (ordered by term).
+     *
+     * @param afterKey The after key returned by the previous page, null for the first page.
+     * @param pageSize The number of terms in the page.
+     * @return The composite aggregation builder.
+     */
+    public CompositeAggregationBuilder buildCompositeFacet(Map<String, Object> afterKey, int pageSize) {
+        TermsValuesSourceBuilder source = new TermsValuesSourceBuilder(getEsFieldName()).field(getTermsField(getEsFieldName())).missingBucket(missing);
+        List<CompositeValuesSourceBuilder<?>> sources = Lists.newArrayList(source);
+        CompositeAggregationBuilder compositeBuilder = new CompositeAggregationBuilder(getEsFieldName(), sources).size(pageSize);
+        if (afterKey != null) {
+            compositeBuilder.aggregateAfter(afterKey);
+        }
+        return compositeBuilder;
+    }
 }
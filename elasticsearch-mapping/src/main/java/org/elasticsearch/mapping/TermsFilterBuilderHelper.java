@@ -1,5 +1,8 @@
 package org.elasticsearch.mapping;
 
+import java.util.Arrays;
+
+import org.elasticsearch.annotation.query.TermFilter;
 import org.elasticsearch.index.query.*;
 
 /**
@@ -9,6 +12,9 @@ import org.elasticsearch.index.query.*;
  */
 public class TermsFilterBuilderHelper extends AbstractFilterBuilderHelper {
     private final boolean isAnalyzed;
+    private final boolean keywordSubField;
+    private final int lookupThreshold;
+    private final boolean deduplicate;
 
     /**
      * Initialize the helper to build term filters.
@@ -18,39 +24,112 @@ public class TermsFilterBuilderHelper extends AbstractFilterBuilderHelper {
      * @param filterPath The path to the field to filter.
      */
     public TermsFilterBuilderHelper(final boolean isAnalyzed, final String nestedPath, final String filterPath) {
+        this(isAnalyzed, false, nestedPath, filterPath);
+    }
+
+    /**
+     * Initialize the helper to build term filters.
+     * 
+     * @param isAnalyzed True if the filtered field is analyzed, false if not.
+     * @param keywordSubField True if the terms must be matched against the keyword sub field of the analyzed field.
+     * @param nestedPath The path to the nested object if any.
+     * @param filterPath The path to the field to filter.
+     */
+    public TermsFilterBuilderHelper(final boolean isAnalyzed, final boolean keywordSubField, final String nestedPath, final String filterPath) {
+        this(isAnalyzed, keywordSubField, nestedPath, filterPath, null);
+    }
+
+    /**
+     * Initialize the helper to build term filters from the configuration annotation.
+     * 
+     * @param isAnalyzed True if the filtered field is analyzed, false if not.
+     * @param keywordSubField True if the terms must be matched against the keyword sub field of the analyzed field.
+     * @param nestedPath The path to the nested object if any.
+     * @param filterPath The path to the field to filter.
+     * @param termFilter The configuration annotation, may be null.
+     */
+    public TermsFilterBuilderHelper(final boolean isAnalyzed, final boolean keywordSubField, final String nestedPath, final String filterPath,
+            final TermFilter termFilter) {
         super(nestedPath, filterPath);
         this.isAnalyzed = isAnalyzed;
+        this.keywordSubField = keywordSubField;
+        this.lookupThreshold = termFilter == null ? -1 : termFilter.lookupThreshold();
+        this.deduplicate = termFilter != null && termFilter.deduplicate();
+    }
+
+    /**
+     * Get the name of the field that contains the terms of the given field (the keyword sub field if any).
+     * 
+     * @param key The name of the field.
+     * @return The name of the field on which to run terms queries and aggregations.
+     */
+    protected String getTermsField(String key) {
+        return keywordSubField ? key + "." + FieldsMappingBuilder.KEYWORD_FIELD : key;
     }
 
     @Override
-    public QueryBuilder buildFilter(final String key, final String... values) {
-        preProcessValues(values);
+    public QueryBuilder buildFilter(final String key, String... values) {
+        values = deduplicate(preProcessValues(values));
         if (values.length == 1) {
             if (values[0] == null) {
                 return QueryBuilders.boolQuery().mustNot(new ExistsQueryBuilder(key));
             }
-            return QueryBuilders.termQuery(key, values[0]);
+            return QueryBuilders.termQuery(getTermsField(key), values[0]);
+        }
+        return QueryBuilders.termsQuery(getTermsField(key), values);
+    }
+
+    @Override
+    public QueryBuilder buildFilter(String key, FilterSpec filterSpec, TermsLookupStore termsLookupStore) {
+        FilterSpec.Kind kind = filterSpec.getKind();
+        String[] values = filterSpec.getValues();
+        if (termsLookupStore == null || lookupThreshold < 0 || !(FilterSpec.Kind.VALUES.equals(kind) || FilterSpec.Kind.TERMS.equals(kind))
+                || values == null || values.length <= lookupThreshold || Arrays.asList(values).contains(null)) {
+            return buildFilter(key, filterSpec);
+        }
+        values = deduplicate(preProcessValues(values));
+        if (values.length <= lookupThreshold) {
+            return buildFilter(key, values);
         }
-        return QueryBuilders.termsQuery(key, values);
+        return termsLookupStore.termsLookupQuery(getTermsField(key), values);
+    }
+
+    @Override
+    protected QueryBuilder buildTypedFilter(String key, FilterSpec filterSpec) {
+        if (FilterSpec.Kind.TERMS.equals(filterSpec.getKind())) {
+            return buildFilter(key, filterSpec.getValues());
+        }
+        return super.buildTypedFilter(key, filterSpec);
     }
 
     @Override
     public QueryBuilder buildQuery(String key, String[] values) {
-        preProcessValues(values);
+        values = preProcessValues(values);
         if (values.length == 1) {
-            return QueryBuilders.termQuery(key, values[0]);
+            return QueryBuilders.termQuery(getTermsField(key), values[0]);
         }
-        return QueryBuilders.termsQuery(key, values);
+        return QueryBuilders.termsQuery(getTermsField(key), values);
     }
 
-    private void preProcessValues(String[] values) {
+    private String[] deduplicate(String[] values) {
+        if (!deduplicate || values.length < 2) {
+            return values;
+        }
+        return Arrays.stream(values).distinct().toArray(String[]::new);
+    }
+
+    private String[] preProcessValues(String[] values) {
         if (values == null || values.length == 0) {
             throw new IllegalArgumentException("Filter values cannot be null or empty");
         }
-        if (isAnalyzed) {
-            for (int i = 0; i < values.length; i++) {
-                values[i] = values[i] == null ? null : values[i].toLowerCase();
-            }
+        if (!isAnalyzed || keywordSubField) {
+            return values;
+        }
+        // work on a copy so the caller's values are not altered.
+        String[] processed = new String[values.length];
+        for (int i = 0; i < values.length; i++) {
+            processed[i] = values[i] == null ? null : values[i].toLowerCase();
         }
+        return processed;
     }
 }
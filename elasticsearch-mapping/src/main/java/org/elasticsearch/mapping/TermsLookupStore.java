@@ -0,0 +1,187 @@
+package org.elasticsearch.mapping;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+
+import org.elasticsearch.ResourceAlreadyExistsException;
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.reindex.BulkByScrollResponse;
+import org.elasticsearch.index.reindex.DeleteByQueryAction;
+import org.elasticsearch.index.reindex.DeleteByQueryRequestBuilder;
+import org.elasticsearch.indices.TermsLookup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Store the values of huge terms filters in lookup documents so the filter is sent to elastic search as a terms lookup query rather than a terms query
+ * containing all the values.
+ *
+ * The id of a lookup document is the hash of its (sorted) values so a given set of values is stored once and reused by every query; the ids of the
+ * documents already stored are kept in memory. Documents are stored in the elasticSearch.terms_lookup.index index (defaults to terms_lookup) that is
+ * created on first use.
+ *
+ * Lookup documents expire after elasticSearch.terms_lookup.ttl_seconds (defaults to one day): expired documents are deleted by {@link #purge()}, that
+ * runs at most once per ttl when a document is stored. Known ids are forgotten after half the ttl so a reused set of values is stored again (and its
+ * expiration pushed back) before it is purged, and so a deleted lookup index is recreated on the next store. The index existence is checked every time a
+ * document is stored.
+ */
+@Component
+@Slf4j
+public class TermsLookupStore {
+    private static final String DEFAULT_INDEX = "terms_lookup";
+    private static final String TYPE = "_doc";
+    private static final String TERMS_PATH = "terms";
+    private static final String CREATED_PATH = "created";
+    private static final long MAX_KNOWN_IDS = 10000;
+    private static final long DEFAULT_TTL_SECONDS = 24 * 60 * 60;
+    /** Values are only read from the source by the lookup, they are not indexed. The creation date is used to purge expired documents. */
+    private static final String MAPPING = "{\"" + TYPE + "\":{\"properties\":{\"" + TERMS_PATH
+            + "\":{\"type\":\"keyword\",\"index\":false,\"doc_values\":false},\"" + CREATED_PATH + "\":{\"type\":\"date\"}}}}";
+
+    @Resource
+    private ElasticSearchClient esClient;
+
+    private String index = DEFAULT_INDEX;
+    private long ttlSeconds = DEFAULT_TTL_SECONDS;
+    private volatile long lastPurge = System.currentTimeMillis();
+    private Cache<String, Boolean> knownIds;
+
+    @PostConstruct
+    public void initialize() {
+        knownIds = CacheBuilder.newBuilder().maximumSize(MAX_KNOWN_IDS).expireAfterWrite(ttlSeconds / 2, TimeUnit.SECONDS).build();
+    }
+
+    /**
+     * Build a terms lookup query on the given field for the given values, storing the values if not already stored.
+     *
+     * @param field The name of the field to filter.
+     * @param values The values of the filter (sorted so the same set of values always get the same lookup document).
+     * @return The terms lookup query.
+     */
+    public QueryBuilder termsLookupQuery(String field, String[] values) {
+        String id = store(values);
+        return QueryBuilders.termsLookupQuery(field, new TermsLookup(index, TYPE, id, TERMS_PATH));
+    }
+
+    /**
+     * Store a lookup document for the given values.
+     *
+     * @param values The values to store.
+     * @return The id of the lookup document.
+     */
+    public String store(String[] values) {
+        String id = hash(values);
+        if (knownIds.getIfPresent(id) != null) {
+            return id;
+        }
+        if (System.currentTimeMillis() - lastPurge > TimeUnit.SECONDS.toMillis(ttlSeconds)) {
+            purge();
+        }
+        ensureIndex();
+        Map<String, Object> source = Maps.newHashMap();
+        source.put(TERMS_PATH, values);
+        source.put(CREATED_PATH, System.currentTimeMillis());
+        IndexRequestBuilder indexRequestBuilder = esClient.getClient().prepareIndex(index, TYPE, id).setSource(source);
+        // the lookup is done through a realtime get so no refresh is required.
+        esClient.execute("terms_lookup", index, indexRequestBuilder);
+        knownIds.put(id, Boolean.TRUE);
+        log.debug("Stored terms lookup document <{}> with <{}> values.", id, values.length);
+        return id;
+    }
+
+    /**
+     * Delete the lookup documents stored more than ttl seconds ago.
+     *
+     * @return The number of deleted documents.
+     */
+    public long purge() {
+        lastPurge = System.currentTimeMillis();
+        long expiration = lastPurge - TimeUnit.SECONDS.toMillis(ttlSeconds);
+        DeleteByQueryRequestBuilder deleteRequestBuilder = new DeleteByQueryRequestBuilder(esClient.getClient(), DeleteByQueryAction.INSTANCE)
+                .source(index).filter(QueryBuilders.rangeQuery(CREATED_PATH).lt(expiration)).abortOnVersionConflict(false).refresh(true);
+        deleteRequestBuilder.source().setIndicesOptions(IndicesOptions.lenientExpandOpen());
+        BulkByScrollResponse response = esClient.execute("terms_lookup_purge", index, deleteRequestBuilder);
+        log.debug("Purged <{}> expired terms lookup documents.", response.getDeleted());
+        return response.getDeleted();
+    }
+
+    /**
+     * Forget the ids of the stored lookup documents so they are stored again on next use (to call when the lookup index is deleted or cleaned).
+     */
+    public void invalidate() {
+        knownIds.invalidateAll();
+    }
+
+    private void ensureIndex() {
+        if (!esClient.execute("terms_lookup_exists", index, esClient.getClient().admin().indices().prepareExists(index)).isExists()) {
+            try {
+                esClient.execute("terms_lookup_create", index,
+                        esClient.getClient().admin().indices().prepareCreate(index).addMapping(TYPE, MAPPING, XContentType.JSON));
+            } catch (ResourceAlreadyExistsException e) {
+                log.debug("Terms lookup index <{}> created concurrently.", index);
+            }
+        }
+    }
+
+    private static String hash(String[] values) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            for (String value : values) {
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+                digest.update((byte) 0);
+            }
+            StringBuilder id = new StringBuilder();
+            for (byte b : digest.digest()) {
+                id.append(String.format("%02x", b));
+            }
+            return id.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+    }
+
+    /**
+     * Get the ids of the lookup documents known to be stored.
+     *
+     * @return The ids of the stored lookup documents.
+     */
+    public Set<String> getKnownIds() {
+        return Collections.unmodifiableSet(knownIds.asMap().keySet());
+    }
+
+    public String getIndex() {
+        return index;
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.terms_lookup.ttl_seconds']}")
+    public void setTtlSeconds(final String ttlSeconds) {
+        if (ttlSeconds != null) {
+            this.ttlSeconds = Long.parseLong(ttlSeconds.trim());
+        }
+    }
+
+    @Value("#{elasticsearchConfig['elasticSearch.terms_lookup.index']}")
+    public void setIndex(final String index) {
+        if (index != null && !index.trim().isEmpty()) {
+            this.index = index.trim();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.elasticsearch.mapping;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.temporal.IsoFields;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Names of the indices of time partitioned classes (see {@link TimePartition}). The partitions of a base index are named &lt;base&gt;-&lt;period&gt; and
+ * share the base index name as alias (see {@link IndexManager#putTimePartitionTemplate(Class, String)}).
+ */
+public final class TimePartitions {
+    /** Maximum number of partitions listed for a range, larger ranges are searched through the partitions pattern. */
+    public static final int MAX_PARTITIONS = 1000;
+    private static final String SEPARATOR = "-";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+    private static final DateTimeFormatter WEEK_FORMAT = new DateTimeFormatterBuilder().appendValue(IsoFields.WEEK_BASED_YEAR, 4).appendLiteral(".w")
+            .appendValue(IsoFields.WEEK_OF_WEEK_BASED_YEAR, 2).toFormatter();
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM");
+
+    private TimePartitions() {
+    }
+
+    /**
+     * Get the pattern that matches all the partitions of a base index.
+     *
+     * @param baseIndex The base index.
+     * @return The pattern of the partitions.
+     */
+    public static String indexPattern(String baseIndex) {
+        return baseIndex + SEPARATOR + "*";
+    }
+
+    /**
+     * Get the partition index of a timestamp.
+     *
+     * @param baseIndex The base index.
+     * @param partition The time partitioning of the index.
+     * @param timestampMillis The timestamp in epoch milliseconds.
+     * @return The name of the partition that contains the timestamp, the base index if the partition is {@link TimePartition#NONE}.
+     */
+    public static String indexName(String baseIndex, TimePartition partition, long timestampMillis) {
+        if (TimePartition.NONE.equals(partition)) {
+            return baseIndex;
+        }
+        return indexName(baseIndex, partition, Instant.ofEpochMilli(timestampMillis).atZone(ZoneOffset.UTC).toLocalDate());
+    }
+
+    /**
+     * Get the partition indices that overlap a time range.
+     *
+     * @param baseIndex The base index.
+     * @param partition The time partitioning of the index.
+     * @param fromMillis The lower bound (included) in epoch milliseconds, {@link Long#MIN_VALUE} for an unbounded range.
+     * @param toMillis The upper bound (excluded) in epoch milliseconds, {@link Long#MAX_VALUE} for an unbounded range.
+     * @return The names of the partitions in time order (empty for an empty range) or null if the range is unbounded or overlaps more than
+     *         {@link #MAX_PARTITIONS} partitions.
+     */
+    public static String[] indexNames(String baseIndex, TimePartition partition, long fromMillis, long toMillis) {
+        if (TimePartition.NONE.equals(partition) || fromMillis == Long.MIN_VALUE || toMillis == Long.MAX_VALUE) {
+            return null;
+        }
+        List<String> indices = new ArrayList<String>();
+        LocalDate last = Instant.ofEpochMilli(toMillis - 1).atZone(ZoneOffset.UTC).toLocalDate();
+        LocalDate start = start(partition, Instant.ofEpochMilli(fromMillis).atZone(ZoneOffset.UTC).toLocalDate());
+        while (!start.isAfter(last)) {
+            if (indices.size() == MAX_PARTITIONS) {
+                return null;
+            }
+            indices.add(indexName(baseIndex, partition, start));
+            start = next(partition, start);
+        }
+        return indices.toArray(new String[indices.size()]);
+    }
+
+    private static String indexName(String baseIndex, TimePartition partition, LocalDate date) {
+        switch (partition) {
+        case DAILY:
+            return baseIndex + SEPARATOR + DAY_FORMAT.format(date);
+        case WEEKLY:
+            return baseIndex + SEPARATOR + WEEK_FORMAT.format(date);
+        case MONTHLY:
+            return baseIndex + SEPARATOR + MONTH_FORMAT.format(date);
+        default:
+            throw new IllegalArgumentException("Unsupported time partition <" + partition + ">.");
+        }
+    }
+
+    private static LocalDate start(TimePartition partition, LocalDate date) {
+        switch (partition) {
+        case WEEKLY:
+            return date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        case MONTHLY:
+            return date.withDayOfMonth(1);
+        default:
+            return date;
+        }
+    }
+
+    private static LocalDate next(TimePartition partition, LocalDate start) {
+        switch (partition) {
+        case WEEKLY:
+            return start.plusWeeks(1);
+        case MONTHLY:
+            return start.plusMonths(1);
+        default:
+            return start.plusDays(1);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.elasticsearch.mapping.metrics;
+
+/**
+ * Registry that receives the client side metrics of the calls issued to elastic search. Metrics are tagged by operation (search, count, bulk etc.) and by
+ * a tag that identifies the mapped classes (or indices) concerned by the call.
+ */
+public interface IMetricsRegistry {
+    /** Wall time of the call as seen by the client in milliseconds. */
+    String LATENCY = "latency";
+    /** Time reported by elastic search in the response in milliseconds. */
+    String TOOK = "took";
+    /** Total number of hits of a search. */
+    String HITS = "hits";
+    /** Size in bytes of the sources returned by a search. */
+    String RESPONSE_SIZE = "response_size";
+    /** Number of calls or items rejected by elastic search (thread pool queue full). */
+    String REJECTIONS = "rejections";
+    /** Number of calls that timed out. */
+    String TIMEOUTS = "timeouts";
+    /** Number of calls that failed for another reason or that returned shard or item failures. */
+    String FAILURES = "failures";
+
+    /**
+     * Record a duration in the histogram of the given metric.
+     *
+     * @param metric The name of the metric.
+     * @param operation The operation performed.
+     * @param tag The mapped classes (or indices) concerned by the operation.
+     * @param millis The duration in milliseconds.
+     */
+    void recordTime(String metric, String operation, String tag, long millis);
+
+    /**
+     * Record a value in the histogram of the given metric.
+     *
+     * @param metric The name of the metric.
+     * @param operation The operation performed.
+     * @param tag The mapped classes (or indices) concerned by the operation.
+     * @param value The value to record.
+     */
+    void recordValue(String metric, String operation, String tag, long value);
+
+    /**
+     * Increment the counter of the given metric.
+     *
+     * @param metric The name of the metric.
+     * @param operation The operation performed.
+     * @param tag The mapped classes (or indices) concerned by the operation.
+     */
+    void increment(String metric, String operation, String tag);
+}
@@ -0,0 +1,127 @@
+package org.elasticsearch.mapping.metrics;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Simple in memory metrics registry. Each metric is kept as a count, sum, max and a fixed buckets histogram. Mainly intended for tests and for
+ * applications that expose the metrics through their own endpoints.
+ */
+public class InMemoryMetricsRegistry implements IMetricsRegistry {
+    /** Upper bounds (inclusive) of the histogram buckets, the last bucket counts all the values greater than the last bound. */
+    private static final long[] BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 30000 };
+
+    private final Map<String, Stats> metrics = new ConcurrentHashMap<String, Stats>();
+
+    @Override
+    public void recordTime(String metric, String operation, String tag, long millis) {
+        stats(metric, operation, tag).record(millis);
+    }
+
+    @Override
+    public void recordValue(String metric, String operation, String tag, long value) {
+        stats(metric, operation, tag).record(value);
+    }
+
+    @Override
+    public void increment(String metric, String operation, String tag) {
+        stats(metric, operation, tag).record(1);
+    }
+
+    /**
+     * Get the statistics of a metric.
+     *
+     * @param metric The name of the metric.
+     * @param operation The operation.
+     * @param tag The tag of the operation.
+     * @return The statistics of the metric or null if nothing has been recorded.
+     */
+    public Stats get(String metric, String operation, String tag) {
+        return metrics.get(key(metric, operation, tag));
+    }
+
+    /**
+     * Get all the recorded metrics by key (metric|operation|tag).
+     *
+     * @return The recorded metrics.
+     */
+    public Map<String, Stats> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Remove all the recorded metrics.
+     */
+    public void clear() {
+        metrics.clear();
+    }
+
+    private Stats stats(String metric, String operation, String tag) {
+        return metrics.computeIfAbsent(key(metric, operation, tag), key -> new Stats());
+    }
+
+    private static String key(String metric, String operation, String tag) {
+        return metric + "|" + operation + "|" + tag;
+    }
+
+    /**
+     * Statistics of a metric.
+     */
+    public static class Stats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Long::max, Long.MIN_VALUE);
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length + 1);
+
+        private void record(long value) {
+            count.increment();
+            sum.add(value);
+            max.accumulate(value);
+            int bucket = Arrays.binarySearch(BUCKETS, value);
+            histogram.incrementAndGet(bucket < 0 ? -bucket - 1 : bucket);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getSum() {
+            return sum.sum();
+        }
+
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Get the number of values recorded in each bucket of the histogram.
+         *
+         * @return The count of values for each bucket, the last bucket contains all values greater than the last bound.
+         */
+        public long[] getHistogram() {
+            long[] counts = new long[histogram.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = histogram.get(i);
+            }
+            return counts;
+        }
+
+        /**
+         * Get the upper bounds of the histogram buckets.
+         *
+         * @return The upper bounds (inclusive) of the histogram buckets.
+         */
+        public static long[] getBuckets() {
+            return Arrays.copyOf(BUCKETS, BUCKETS.length);
+        }
+
+        @Override
+        public String toString() {
+            return "Stats [count=" + getCount() + ", sum=" + getSum() + ", max=" + getMax() + "]";
+        }
+    }
+}
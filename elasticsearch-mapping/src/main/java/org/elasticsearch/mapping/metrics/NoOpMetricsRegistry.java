@@ -0,0 +1,23 @@
+package org.elasticsearch.mapping.metrics;
+
+/**
+ * Default metrics registry that ignores all the metrics.
+ */
+public final class NoOpMetricsRegistry implements IMetricsRegistry {
+    public static final NoOpMetricsRegistry INSTANCE = new NoOpMetricsRegistry();
+
+    private NoOpMetricsRegistry() {
+    }
+
+    @Override
+    public void recordTime(String metric, String operation, String tag, long millis) {
+    }
+
+    @Override
+    public void recordValue(String metric, String operation, String tag, long value) {
+    }
+
+    @Override
+    public void increment(String metric, String operation, String tag) {
+    }
+}
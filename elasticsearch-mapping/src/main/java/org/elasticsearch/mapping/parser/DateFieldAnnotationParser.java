@@ -3,6 +3,7 @@ package org.elasticsearch.mapping.parser;
 import java.util.Map;
 
 import org.elasticsearch.annotation.DateField;
+import org.elasticsearch.mapping.DateRangeFilterBuilderHelper;
 import org.elasticsearch.mapping.Indexable;
 import org.elasticsearch.mapping.IndexType;
 import org.elasticsearch.mapping.MappingBuilder;
@@ -35,5 +36,8 @@ public class DateFieldAnnotationParser implements IPropertyAnnotationParser<Date
            fieldDefinition.put("copy_to", "all");
         }
         fieldDefinition.put("ignore_malformed", annotation.ignoreMalformed());
+        if (annotation.epochMillis()) {
+            fieldDefinition.put("format", DateRangeFilterBuilderHelper.EPOCH_MILLIS);
+        }
     }
 }
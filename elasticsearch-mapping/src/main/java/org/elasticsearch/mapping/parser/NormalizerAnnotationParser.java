@@ -0,0 +1,26 @@
+package org.elasticsearch.mapping.parser;
+
+import java.util.Map;
+
+import org.elasticsearch.annotation.Normalizer;
+import org.elasticsearch.mapping.Indexable;
+
+/**
+ * Parse a {@link Normalizer} annotation.
+ * 
+ */
+public class NormalizerAnnotationParser implements IPropertyAnnotationParser<Normalizer> {
+    public void parseAnnotation(Normalizer annotation, Map<String, Object> fieldDefinition, String pathPrefix, String nestedPrefix, Indexable indexable) {
+        // a normalized field is a keyword, remove text specific settings.
+        fieldDefinition.put("type", "keyword");
+        fieldDefinition.remove("fielddata");
+        fieldDefinition.remove("analyzer");
+        fieldDefinition.remove("index_analyzer");
+        fieldDefinition.remove("search_analyzer");
+        fieldDefinition.remove("index_prefixes");
+        if (!fieldDefinition.containsKey("index")) {
+            fieldDefinition.put("index", "true");
+        }
+        fieldDefinition.put("normalizer", annotation.normalizer());
+    }
+}
@@ -7,6 +7,7 @@ import org.elasticsearch.mapping.Indexable;
 import org.elasticsearch.mapping.IndexType;
 import org.elasticsearch.mapping.MappingBuilder;
 import org.elasticsearch.mapping.MappingException;
+import org.elasticsearch.mapping.NumberType;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -25,7 +26,7 @@ public class NumberFieldAnnotationParser implements IPropertyAnnotationParser<Nu
             fieldDefinition.clear();
         }
 
-        String type = getESNumberType(indexable);
+        String type = getESNumberType(annotation, indexable);
         if (type == null) {
             String error = "Field <"
                     + indexable.getName()
@@ -36,6 +37,13 @@ public class NumberFieldAnnotationParser implements IPropertyAnnotationParser<Nu
         }
 
         fieldDefinition.put("type", type);
+        if (NumberType.SCALED_FLOAT.getEsType().equals(type)) {
+            if (annotation.scalingFactor() <= 0) {
+                throw new MappingException("Field <" + indexable.getName() + "> of <" + indexable.getDeclaringClassName()
+                        + "> is a scaled_float and requires a positive scaling factor.");
+            }
+            fieldDefinition.put("scaling_factor", annotation.scalingFactor());
+        }
         fieldDefinition.put("store", annotation.store());
         //fieldDefinition.put("index", annotation.index());
         fieldDefinition.put("index", annotation.index() == IndexType.no ? "false" : "true");
@@ -48,6 +56,40 @@ public class NumberFieldAnnotationParser implements IPropertyAnnotationParser<Nu
         fieldDefinition.put("ignore_malformed", annotation.ignoreMalformed());
     }
 
+    private String getESNumberType(NumberField annotation, Indexable indexable) {
+        String javaType = getESNumberType(indexable);
+        if (javaType == null) {
+            return null;
+        }
+        boolean integral = !"float".equals(javaType) && !"double".equals(javaType);
+        NumberType numberType = annotation.type();
+        if (NumberType.DEFAULT.equals(numberType)) {
+            if (!integral) {
+                return annotation.scalingFactor() > 0 ? NumberType.SCALED_FLOAT.getEsType() : javaType;
+            }
+            // narrow the type based on the declared range of values.
+            NumberType rangeType = getIntegralType(annotation.minValue(), annotation.maxValue());
+            NumberType javaNumberType = NumberType.valueOf(javaType.toUpperCase());
+            return rangeType.getWidth() < javaNumberType.getWidth() ? rangeType.getEsType() : javaType;
+        }
+        if (numberType.isIntegral() && !integral) {
+            throw new MappingException("Field <" + indexable.getName() + "> of <" + indexable.getDeclaringClassName()
+                    + "> is a floating point number and cannot be mapped as <" + numberType.getEsType() + ">.");
+        }
+        return numberType.getEsType();
+    }
+
+    private NumberType getIntegralType(long minValue, long maxValue) {
+        if (minValue >= Byte.MIN_VALUE && maxValue <= Byte.MAX_VALUE) {
+            return NumberType.BYTE;
+        } else if (minValue >= Short.MIN_VALUE && maxValue <= Short.MAX_VALUE) {
+            return NumberType.SHORT;
+        } else if (minValue >= Integer.MIN_VALUE && maxValue <= Integer.MAX_VALUE) {
+            return NumberType.INTEGER;
+        }
+        return NumberType.LONG;
+    }
+
     private String getESNumberType(Indexable indexable) {
         Class<?> fieldType = indexable.getType();
         while (fieldType.isArray()) {
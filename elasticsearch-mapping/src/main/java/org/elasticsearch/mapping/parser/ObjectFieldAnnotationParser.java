@@ -4,7 +4,9 @@ import java.beans.IntrospectionException;
 import java.util.List;
 import java.util.Map;
 
+import org.elasticsearch.annotation.DynamicTemplate;
 import org.elasticsearch.annotation.ObjectField;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.elasticsearch.mapping.*;
 import lombok.extern.slf4j.Slf4j;
@@ -38,6 +40,9 @@ public class ObjectFieldAnnotationParser implements IPropertyAnnotationParser<Ob
 
         fieldDefinition.put("type", "object");
         fieldDefinition.put("enabled", enabled);
+        if (annotation != null && enabled) {
+            parseDynamic(annotation, fieldDefinition, pathPrefix, indexable);
+        }
         if (enabled) {
             Map<String, SourceFetchContext> fetchContext = Maps.newHashMap();
             // nested types can provide replacement class to be managed. This can be usefull to override map default type for example.
@@ -50,4 +55,19 @@ public class ObjectFieldAnnotationParser implements IPropertyAnnotationParser<Ob
             }
         }
     }
+
+    private void parseDynamic(ObjectField annotation, Map<String, Object> fieldDefinition, String pathPrefix, Indexable indexable) {
+        if (!DynamicMapping.DEFAULT.equals(annotation.dynamic())) {
+            fieldDefinition.put("dynamic", annotation.dynamic().getEsValue());
+        }
+        if (annotation.dynamicTemplates().length > 0) {
+            // moved to the root object by the mapping builder.
+            String fieldPath = pathPrefix == null ? indexable.getName() : pathPrefix + indexable.getName();
+            List<Map<String, Object>> dynamicTemplates = Lists.newArrayList();
+            for (DynamicTemplate dynamicTemplate : annotation.dynamicTemplates()) {
+                dynamicTemplates.add(DynamicTemplates.build(dynamicTemplate, fieldPath));
+            }
+            fieldDefinition.put(DynamicTemplates.DYNAMIC_TEMPLATES, dynamicTemplates);
+        }
+    }
 }
@@ -0,0 +1,37 @@
+package org.elasticsearch.mapping.parser;
+
+import java.util.Map;
+
+import org.elasticsearch.annotation.RangeField;
+import org.elasticsearch.mapping.Indexable;
+import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.RangeType;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Parse a {@link RangeField} annotation.
+ * 
+ */
+@Slf4j
+public class RangeFieldAnnotationParser implements IPropertyAnnotationParser<RangeField> {
+
+    public void parseAnnotation(RangeField annotation, Map<String, Object> fieldDefinition, String pathPrefix, String nestedPrefix, Indexable indexable) {
+        if (fieldDefinition.get("type") != null) {
+            log.info("Overriding mapping for field {} for class {} was defined as type {}", indexable.getName(), indexable.getDeclaringClassName(),
+                    fieldDefinition.get("type"));
+            fieldDefinition.clear();
+        }
+
+        fieldDefinition.put("type", annotation.type().getEsType());
+        fieldDefinition.put("store", annotation.store());
+        fieldDefinition.put("index", annotation.index() == IndexType.no ? "false" : "true");
+        if (!annotation.format().isEmpty()) {
+            if (RangeType.DATE.equals(annotation.type())) {
+                fieldDefinition.put("format", annotation.format());
+            } else {
+                log.warn("Format <{}> is ignored on field <{}> of <{}> as it is not a date range.", annotation.format(), indexable.getName(),
+                        indexable.getDeclaringClassName());
+            }
+        }
+    }
+}
@@ -3,8 +3,12 @@ package org.elasticsearch.mapping.parser;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.elasticsearch.annotation.Normalizer;
 import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.query.Sortable;
+import org.elasticsearch.annotation.query.TermsFacet;
 import org.elasticsearch.mapping.*;
+import org.elasticsearch.util.MapUtil;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -25,7 +29,10 @@ public class StringFieldAnnotationParser implements IPropertyAnnotationParser<St
         if (annotation.indexType() == IndexType.analyzed) {
            fieldDefinition.put("type", "text");
            fieldDefinition.put("index", "true"); 
-           fieldDefinition.put("fielddata", "true");
+           // faceted and sortable text use the keyword sub field.
+           if (annotation.fielddata() && !needsKeywordSubField(annotation, indexable)) {
+              fieldDefinition.put("fielddata", "true");
+           }
         } else if (annotation.indexType() == IndexType.not_analyzed) {
            fieldDefinition.put("type", "keyword");
            fieldDefinition.put("index", "true"); 
@@ -71,6 +78,48 @@ public class StringFieldAnnotationParser implements IPropertyAnnotationParser<St
             fieldDefinition.put("ignore_above", annotation.ignoreAbove());
         }
 
+        if (annotation.indexPrefixesMinChars() >= 0 || annotation.indexPrefixesMaxChars() >= 0) {
+            if ("text".equals(fieldDefinition.get("type"))) {
+                Map<String, Object> indexPrefixes = new HashMap<String, Object>();
+                indexPrefixes.put("min_chars", annotation.indexPrefixesMinChars() < 0 ? 2 : annotation.indexPrefixesMinChars());
+                indexPrefixes.put("max_chars", annotation.indexPrefixesMaxChars() < 0 ? 5 : annotation.indexPrefixesMaxChars());
+                fieldDefinition.put("index_prefixes", indexPrefixes);
+            } else {
+                log.warn("Index prefixes are supported only on analyzed fields, they are ignored for field <{}> of class <{}>.", indexable.getName(),
+                        indexable.getDeclaringClassName());
+            }
+        }
+
+        // global ordinals are only built for fields that supports aggregations.
+        TermsFacet termsFacet = indexable.getAnnotation(TermsFacet.class);
+        boolean eagerGlobalOrdinals = termsFacet != null && termsFacet.eagerGlobalOrdinals();
+        if (needsKeywordSubField(annotation, indexable)) {
+            // aggregations and sorts on analyzed text use a doc values keyword rather than heap fielddata.
+            Map<String, Object> keywordDefinition = new HashMap<String, Object>();
+            keywordDefinition.put("type", "keyword");
+            if (eagerGlobalOrdinals) {
+                keywordDefinition.put("eager_global_ordinals", true);
+            }
+            fieldDefinition.put("fields", MapUtil.getMap(FieldsMappingBuilder.KEYWORD_FIELD, keywordDefinition));
+        } else if (eagerGlobalOrdinals && ("keyword".equals(fieldDefinition.get("type")) || fieldDefinition.containsKey("fielddata"))) {
+            fieldDefinition.put("eager_global_ordinals", true);
+        }
+
         // FIXME annotation.positionOffsetGap();
     }
+
+    /**
+     * Check if a keyword sub field must be added to the string field: analyzed fields that are faceted or sorted and that does not use a normalizer. Such
+     * fields are aggregated and sorted on the keyword sub field rather than on fielddata.
+     * 
+     * @param annotation The string field annotation of the field.
+     * @param indexable The field.
+     * @return True if a keyword sub field is added to the field mapping.
+     */
+    public static boolean needsKeywordSubField(StringField annotation, Indexable indexable) {
+        if (annotation.indexType() != IndexType.analyzed || indexable.getAnnotation(Normalizer.class) != null) {
+            return false;
+        }
+        return indexable.getAnnotation(TermsFacet.class) != null || indexable.getAnnotation(Sortable.class) != null;
+    }
 }
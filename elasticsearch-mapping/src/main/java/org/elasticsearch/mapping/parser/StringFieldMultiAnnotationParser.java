@@ -18,6 +18,7 @@ import lombok.extern.slf4j.Slf4j;
 public class StringFieldMultiAnnotationParser implements IPropertyAnnotationParser<StringFieldMulti> {
     private StringFieldAnnotationParser wrapped = new StringFieldAnnotationParser();
 
+    @SuppressWarnings("unchecked")
     public void parseAnnotation(StringFieldMulti annotation, Map<String, Object> fieldDefinition, String pathPrefix, String nestedPrefix, Indexable indexable) {
         if (fieldDefinition.get("type") != null) {
             log.info("Overriding mapping for field {} for class {} was defined as type {}", indexable.getName(), indexable.getDeclaringClassName(),
@@ -29,11 +30,17 @@ public class StringFieldMultiAnnotationParser implements IPropertyAnnotationPars
         wrapped.parseAnnotation(mainStringField, fieldDefinition, pathPrefix, nestedPrefix, indexable);
 
         Map<String, Object> multiFields = Maps.newHashMap();
+        if (fieldDefinition.get("fields") != null) {
+            // keyword sub field of the main field.
+            multiFields.putAll((Map<String, Object>) fieldDefinition.get("fields"));
+        }
 
         for (int i = 0; i < annotation.multi().length; i++) {
             StringField multi = annotation.multi()[i];
             Map<String, Object> multiFieldDefinition = Maps.newHashMap();
             wrapped.parseAnnotation(multi, multiFieldDefinition, pathPrefix, nestedPrefix, indexable);
+            // multi fields cannot have sub fields.
+            multiFieldDefinition.remove("fields");
             multiFields.put(annotation.multiNames()[i], multiFieldDefinition);
         }
         fieldDefinition.put("fields", multiFields);
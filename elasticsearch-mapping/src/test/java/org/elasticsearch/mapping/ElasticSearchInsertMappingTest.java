@@ -3,7 +3,12 @@ package org.elasticsearch.mapping;
 import java.beans.IntrospectionException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Resource;
@@ -18,16 +23,32 @@ import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
 import org.elasticsearch.action.support.WriteRequest.RefreshPolicy;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.elasticsearch.common.network.NetworkModule;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.env.Environment;
+import org.elasticsearch.index.mapper.MapperParsingException;
+import org.elasticsearch.index.query.PrefixQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.annotation.query.TermsFacet;
+import org.elasticsearch.mapping.metrics.IMetricsRegistry;
+import org.elasticsearch.mapping.metrics.InMemoryMetricsRegistry;
+import org.elasticsearch.mapping.model.Account;
 import org.elasticsearch.mapping.model.Address;
+import org.elasticsearch.mapping.model.Country;
+import org.elasticsearch.mapping.model.Event;
+import org.elasticsearch.mapping.model.LogEntry;
 import org.elasticsearch.mapping.model.Person;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
+import org.elasticsearch.search.aggregations.bucket.composite.CompositeAggregation;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.histogram.Histogram;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.node.MockNode;
 import org.elasticsearch.plugins.Plugin;
@@ -41,6 +62,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import com.fasterxml.jackson.core.JsonGenerationException;
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -53,6 +75,14 @@ public class ElasticSearchInsertMappingTest {
     private MappingBuilder mappingBuilder;
     @Resource
     private QueryHelper queryHelper;
+    @Resource
+    private InMemoryMetricsRegistry metricsRegistry;
+    @Resource
+    private TermsLookupStore termsLookupStore;
+    @Resource
+    private IndexManager indexManager;
+    @Resource
+    private FacetCache facetCache;
     private final ObjectMapper jsonMapper = new ObjectMapper();
 
     @Before
@@ -131,6 +161,15 @@ public class ElasticSearchInsertMappingTest {
         filters.put("address.city", new String[] { "Fontainebleau" });
         response = this.queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(searchIndexes).execute(0, 10000);
         Assert.assertEquals(1, response.getHits().getTotalHits());
+
+        InMemoryMetricsRegistry.Stats searchLatency = metricsRegistry.get(IMetricsRegistry.LATENCY, "search", "Person");
+        Assert.assertNotNull(searchLatency);
+        Assert.assertEquals(5, searchLatency.getCount());
+        Assert.assertEquals(5, metricsRegistry.get(IMetricsRegistry.HITS, "search", "Person").getSum());
+
+        // analyzed fields that are neither faceted nor sortable keep fielddata by default (sorted on their lowest term: else before lastname).
+        response = this.queryHelper.buildQuery().types(requestedTypes).prepareSearch(searchIndexes).fieldSort("lastname", "text", false).execute(0, 10);
+        Assert.assertEquals("AnotherPersonId", response.getHits().getAt(0).getId());
 		} catch (Exception e) {
 			System.out.println ("Got e" + e.getMessage());
 			e.printStackTrace();
@@ -138,6 +177,539 @@ public class ElasticSearchInsertMappingTest {
 		}
     }
 
+    @Test
+    public void testCountryQueries() throws Exception {
+        String indexName = initCountries();
+
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        SearchResponse response = queryHelper.buildQuery("fra", SearchQueryMode.EDGE_NGRAM).types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        response = queryHelper.buildQuery("Fin", SearchQueryMode.INDEX_PREFIXES).types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        // the search text is tokenized as the edge n-grams, not as the all field.
+        response = queryHelper.buildQuery("Fra-Pa", SearchQueryMode.EDGE_NGRAM).types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        response = queryHelper.buildQuery("written constitution", SearchQueryMode.PHRASE).types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        response = queryHelper.buildQuery("constitution written", SearchQueryMode.PHRASE).types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(0, response.getHits().getTotalHits());
+
+        // elastic search rewrites the prefix query to the indexed prefixes when the prefix length is in the indexed range.
+        QueryHelper.IFilterableQueryBuilderHelper prefixQuery = queryHelper.buildQuery("name", "fr").types(requestedTypes);
+        Assert.assertTrue(prefixQuery.getQueryBuilder() instanceof PrefixQueryBuilder);
+        Assert.assertEquals(1, prefixQuery.prepareSearch(indexName).execute(0, 10).getHits().getTotalHits());
+        prefixQuery = queryHelper.buildQuery("name", "franc").types(requestedTypes);
+        Assert.assertTrue(prefixQuery.getQueryBuilder() instanceof PrefixQueryBuilder);
+        Assert.assertEquals(1, prefixQuery.prepareSearch(indexName).execute(0, 10).getHits().getTotalHits());
+
+        // normalized keyword, values are not altered on the client.
+        Map<String, String[]> filters = Maps.newHashMap();
+        String[] codes = new String[] { "FR" };
+        filters.put("code", codes);
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("FR", codes[0]);
+        // filter only text with optimized mapping (no norms, docs only index options).
+        filters = Maps.newHashMap();
+        filters.put("capital", new String[] { "Paris" });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+
+        // faceted and sortable text use the keyword sub field, values are not lowercased.
+        filters = Maps.newHashMap();
+        filters.put("name", new String[] { "France" });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        response = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).facets().fieldSort("name", "keyword", true).execute(0, 10);
+        Assert.assertEquals("France", response.getHits().getAt(0).getId());
+        Terms names = response.getAggregations().get("name");
+        Assert.assertNotNull(names.getBucketByKey("Finland"));
+        Histogram joined = response.getAggregations().get("joined");
+        Assert.assertEquals(2, joined.getBuckets().size());
+        Assert.assertEquals("1957", joined.getBuckets().get(0).getKeyAsString());
+
+        // null requested types are ignored by the profiling.
+        response = queryHelper.buildQuery("France").types(Country.class, null).prepareSearch(indexName).profile(true).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+    }
+
+    @Test
+    public void testSourceExcludes() throws Exception {
+        String indexName = initCountries();
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        // fields excluded from the source are still searchable.
+        SearchResponse response = queryHelper.buildQuery("constitution").types(requestedTypes).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertFalse(response.getHits().getAt(0).getSourceAsMap().containsKey("description"));
+        Assert.assertTrue(response.getHits().getAt(0).getSourceAsMap().containsKey("capital"));
+    }
+
+    @Test
+    public void testSourceLessFetch() throws Exception {
+        String indexName = initCountries();
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        // fetch contexts resolved to doc values do not load the source.
+        SearchResponse response = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).fetchContext("summary", true).execute(0, 10);
+        Assert.assertNull(response.getHits().getAt(0).getSourceAsMap());
+        Assert.assertNotNull(response.getHits().getAt(0).field("joined").getValue());
+        response = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).fetchContext("list", true).execute(0, 10);
+        Assert.assertTrue(response.getHits().getAt(0).getSourceAsMap().containsKey("name"));
+        // normalized keywords are fetched from the source as indexed, their doc values are lowercased.
+        response = queryHelper.buildQuery("France").types(requestedTypes).prepareSearch(indexName).fetchContext("code", true).execute(0, 10);
+        Assert.assertEquals("Fr", response.getHits().getAt(0).getSourceAsMap().get("code"));
+        Assert.assertNull(response.getHits().getAt(0).field("code"));
+    }
+
+    @Test
+    public void testDateRangeFilters() throws Exception {
+        String indexName = initCountries();
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        // typed and string date ranges.
+        DateRangeFilterBuilderHelper joinedFilter = new DateRangeFilterBuilderHelper(null, "joined");
+        SearchResponse response = queryHelper.buildQuery().types(requestedTypes).filters(joinedFilter.buildFilter(Instant.parse("1990-01-01T00:00:00Z"), null))
+                .prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("Finland", response.getHits().getAt(0).getId());
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("joined", new String[] { " - " + Instant.parse("1990-01-01T00:00:00Z").toEpochMilli() });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("France", response.getHits().getAt(0).getId());
+        // histogram bucket keys (formatted as yyyy) are filtered on their bucket.
+        filters.put("joined", new String[] { "1957" });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("France", response.getHits().getAt(0).getId());
+        filters.put("joined", new String[] { "1957", "1995" });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(2, response.getHits().getTotalHits());
+        filters.put("joined", new String[] { "1996" });
+        response = queryHelper.buildQuery().types(requestedTypes).filters(filters).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(0, response.getHits().getTotalHits());
+    }
+
+    @Test
+    public void testFilterSpecs() throws Exception {
+        String indexName = initCountries();
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        // typed filter specs.
+        Map<String, FilterSpec> filterSpecs = Maps.newHashMap();
+        filterSpecs.put("code", FilterSpec.terms("FI", "FR"));
+        filterSpecs.put("joined", FilterSpec.dateRange(Instant.parse("1990-01-01T00:00:00Z"), null));
+        SearchResponse response = queryHelper.buildQuery().types(requestedTypes).filterSpecs(filterSpecs).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("Finland", response.getHits().getAt(0).getId());
+        filterSpecs = Maps.newHashMap();
+        filterSpecs.put("capital", FilterSpec.missing());
+        response = queryHelper.buildQuery().types(requestedTypes).filterSpecs(filterSpecs).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(0, response.getHits().getTotalHits());
+    }
+
+    @Test
+    public void testTermsLookup() throws Exception {
+        String indexName = initCountries();
+        Class<?>[] requestedTypes = new Class[] { Country.class };
+        termsLookupStore.invalidate();
+        // values above the lookup threshold are stored in a terms lookup document.
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("code", new String[] { "FR", "FI", "FR" });
+        QueryHelper.IFilterableQueryBuilderHelper lookupQuery = queryHelper.buildQuery().types(requestedTypes).filters(filters);
+        Assert.assertTrue(lookupQuery.getQueryBuilder().toString().contains(termsLookupStore.getIndex()));
+        Assert.assertEquals(2, lookupQuery.prepareSearch(indexName).execute(0, 10).getHits().getTotalHits());
+        Assert.assertEquals(1, termsLookupStore.getKnownIds().size());
+
+        // without known ids a deleted lookup index is recreated and expired lookup documents are purged.
+        termsLookupStore.setTtlSeconds("0");
+        termsLookupStore.initialize();
+        try {
+            esClient.getClient().admin().indices().prepareDelete(termsLookupStore.getIndex()).execute().actionGet();
+            lookupQuery = queryHelper.buildQuery().types(requestedTypes).filters(filters);
+            Assert.assertEquals(2, lookupQuery.prepareSearch(indexName).execute(0, 10).getHits().getTotalHits());
+            esClient.getClient().admin().indices().prepareRefresh(termsLookupStore.getIndex()).execute().actionGet();
+            Thread.sleep(10);
+            Assert.assertEquals(1, termsLookupStore.purge());
+        } finally {
+            termsLookupStore.setTtlSeconds(String.valueOf(24 * 60 * 60));
+            termsLookupStore.initialize();
+        }
+    }
+
+    @Test
+    public void testFacetCache() throws Exception {
+        String indexName = initCountries();
+        facetCache.setMaxSize("10");
+        facetCache.initialize();
+        try {
+            Class<?>[] requestedTypes = new Class[] { Country.class };
+            Terms names = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).facets().execute(0, 10).getAggregations().get("name");
+            Assert.assertEquals(2, names.getBuckets().size());
+
+            // cached facets are not requested and are merged in the response.
+            saveCountry(indexName, "Germany", "Berlin", "1957-03-25T00:00:00Z", "Federal republic");
+            QueryHelper.ISearchQueryBuilderHelper cachedSearch = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).facets();
+            SearchResponse response = cachedSearch.execute(0, 10);
+            Assert.assertNull(cachedSearch.getSearchRequestBuilder().request().source().aggregations());
+            Assert.assertEquals(3, response.getHits().getTotalHits());
+            names = response.getAggregations().get("name");
+            Assert.assertEquals(2, names.getBuckets().size());
+            Assert.assertNotNull(response.getAggregations().get("joined"));
+
+            // writes done with the client must invalidate the cache.
+            facetCache.invalidate(indexName);
+            names = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).facets().execute(0, 10).getAggregations().get("name");
+            Assert.assertEquals(3, names.getBuckets().size());
+
+            // bulk loads into a concrete index invalidate the searches done through its aliases.
+            esClient.getClient().admin().indices().prepareAliases().addAlias(indexName, indexName + "_alias").execute().actionGet();
+            names = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName + "_alias").facets().execute(0, 10).getAggregations().get("name");
+            Assert.assertEquals(3, names.getBuckets().size());
+            Country country = new Country();
+            country.setName("Spain");
+            country.setCode("ES");
+            String source = jsonMapper.writeValueAsString(country);
+            indexManager.bulkLoad(Country.class, loadSession -> loadSession.add("Spain", source), 0, indexName);
+            names = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName + "_alias").facets().execute(0, 10).getAggregations().get("name");
+            Assert.assertEquals(4, names.getBuckets().size());
+        } finally {
+            facetCache.setMaxSize("0");
+            facetCache.initialize();
+        }
+    }
+
+    @Test
+    public void testPostFilterFacets() throws Exception {
+        String indexName = initCountries();
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("name", new String[] { "France" });
+        SearchResponse response = queryHelper.buildQuery().types(Country.class).filters(filters).prepareSearch(indexName)
+                .facets(FacetStrategy.POST_FILTER).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        // the facet of the filtered field ignores its own filter, other facets apply it.
+        Terms names = ((Filter) response.getAggregations().get("filtered_name")).getAggregations().get("name");
+        Assert.assertEquals(2, names.getBuckets().size());
+        Assert.assertEquals(1, names.getBucketByKey("Finland").getDocCount());
+        Histogram joined = ((Filter) response.getAggregations().get("filtered_joined")).getAggregations().get("joined");
+        Assert.assertEquals(1, joined.getBuckets().size());
+        Assert.assertEquals("1957", joined.getBuckets().get(0).getKeyAsString());
+
+        // composite aggregations cannot be computed in a filter aggregation.
+        TermsFacet termsFacet = Country.class.getDeclaredField("name").getAnnotation(TermsFacet.class);
+        IFacetBuilderHelper compositeFacet = new TermsAggregationBuilderHelper(false, null, "code", termsFacet) {
+            @Override
+            public List<AggregationBuilder> buildFacets() {
+                return Lists.newArrayList(buildCompositeFacet(null, 10));
+            }
+        };
+        response = queryHelper.buildQuery().types(Country.class).filters(filters).prepareSearch(indexName)
+                .facets(Lists.newArrayList(compositeFacet), FacetStrategy.POST_FILTER).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertNull(response.getAggregations().get("filtered_code"));
+        Assert.assertNotNull(response.getAggregations().get("filtered_name"));
+    }
+
+    @Test
+    public void testAllTerms() throws Exception {
+        String indexName = initCountries();
+        saveCountry(indexName, "Germany", "Berlin", "1957-03-25T00:00:00Z", "Federal republic");
+        Iterator<CompositeAggregation.Bucket> buckets = queryHelper.buildQuery().types(Country.class).prepareSearch(indexName).allTerms("name", 1);
+        Assert.assertEquals(Arrays.asList("Finland", "France", "Germany"), bucketKeys(buckets, "name"));
+
+        // terms are counted with the filters of the facet when the facet filters are moved to the post filter.
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("joined", new String[] { " - " + Instant.parse("1990-01-01T00:00:00Z").toEpochMilli() });
+        QueryHelper.ISearchQueryBuilderHelper search = queryHelper.buildQuery().types(Country.class).filters(filters).prepareSearch(indexName)
+                .facets(FacetStrategy.POST_FILTER);
+        Assert.assertEquals(Arrays.asList("France", "Germany"), bucketKeys(search.allTerms("name", 1), "name"));
+        Terms names = ((Filter) search.execute(0, 10).getAggregations().get("filtered_name")).getAggregations().get("name");
+        Assert.assertEquals(2, names.getBuckets().size());
+
+        try {
+            search.allTerms("code", 1);
+            Assert.fail("Only facets defined with allTerms can be paged.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    private List<Object> bucketKeys(Iterator<CompositeAggregation.Bucket> buckets, String source) {
+        List<Object> keys = new ArrayList<Object>();
+        while (buckets.hasNext()) {
+            keys.add(buckets.next().getKey().get(source));
+        }
+        return keys;
+    }
+
+    @Test
+    public void testStoredFieldsQueries() throws Exception {
+        String indexName = LogEntry.class.getSimpleName().toLowerCase();
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        if (esClient.getClient().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+            esClient.getClient().admin().indices().prepareDelete(indexName).execute().actionGet();
+        }
+        esClient.getClient().admin().indices().prepareCreate(indexName).setSettings(mappingBuilder.getIndexSettings(LogEntry.class), XContentType.JSON)
+                .addMapping("_doc", mappingBuilder.getMapping(LogEntry.class), XContentType.JSON).execute().actionGet();
+        esClient.waitForGreenStatus(indexName);
+        Settings settings = esClient.getClient().admin().indices().prepareGetSettings(indexName).get().getIndexToSettings().get(indexName);
+        Assert.assertEquals("best_compression", settings.get("index.codec"));
+        Assert.assertEquals("desc", settings.getAsList("index.sort.order").get(0));
+
+        LogEntry logEntry = new LogEntry();
+        logEntry.setMessage("Disk is full");
+        logEntry.setLevel(3);
+        logEntry.setTimestamp(Date.from(Instant.parse("2020-01-01T00:00:00Z")));
+        logEntry.setDetails("Only 0 bytes left");
+        esClient.getClient().prepareIndex(indexName, "_doc", "1").setSource(jsonMapper.writeValueAsString(logEntry), XContentType.JSON)
+                .setRefreshPolicy(RefreshPolicy.IMMEDIATE).execute().actionGet();
+
+        SearchResponse response = queryHelper.buildQuery().types(new Class[] { LogEntry.class }).prepareSearch(indexName).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertNull(response.getHits().getAt(0).getSourceAsMap());
+        LogEntry read = StoredFieldsReader.read(response.getHits().getAt(0), LogEntry.class);
+        Assert.assertEquals("Disk is full", read.getMessage());
+        Assert.assertEquals(3, read.getLevel());
+        Assert.assertEquals(logEntry.getTimestamp(), read.getTimestamp());
+        Assert.assertNull(read.getDetails());
+
+        // latest entries: the sort matches the index sort so the total hits are not tracked.
+        logEntry.setMessage("Disk is almost full");
+        logEntry.setTimestamp(Date.from(Instant.parse("2020-01-02T00:00:00Z")));
+        esClient.getClient().prepareIndex(indexName, "_doc", "2").setSource(jsonMapper.writeValueAsString(logEntry), XContentType.JSON)
+                .setRefreshPolicy(RefreshPolicy.IMMEDIATE).execute().actionGet();
+        Class<?>[] requestedTypes = new Class[] { LogEntry.class };
+        response = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).fieldSort("timestamp", "date", true).exactTotalHits(false)
+                .execute(0, 1);
+        Assert.assertEquals(-1, response.getHits().getTotalHits());
+        Assert.assertEquals("2", response.getHits().getAt(0).getId());
+        response = queryHelper.buildQuery().types(requestedTypes).prepareSearch(indexName).fieldSort("timestamp", "date", false).exactTotalHits(false)
+                .execute(0, 1);
+        Assert.assertEquals(2, response.getHits().getTotalHits());
+        Assert.assertEquals("1", response.getHits().getAt(0).getId());
+    }
+
+    @Test
+    public void testBulkLoad() throws Exception {
+        String indexName = "logentry_bulk";
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        if (esClient.getClient().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+            esClient.getClient().admin().indices().prepareDelete(indexName).execute().actionGet();
+        }
+        esClient.getClient().admin().indices().prepareCreate(indexName).setSettings(mappingBuilder.getIndexSettings(LogEntry.class), XContentType.JSON)
+                .addMapping("_doc", mappingBuilder.getMapping(LogEntry.class), XContentType.JSON).execute().actionGet();
+        esClient.waitForGreenStatus(indexName);
+
+        BulkLoadSession session = indexManager.bulkLoad(LogEntry.class, loadSession -> {
+            for (int i = 0; i < 3; i++) {
+                LogEntry logEntry = new LogEntry();
+                logEntry.setMessage("Entry " + i);
+                logEntry.setTimestamp(new Date());
+                try {
+                    loadSession.add(String.valueOf(i), jsonMapper.writeValueAsString(logEntry));
+                } catch (JsonProcessingException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }, 1, indexName);
+        Assert.assertEquals(3, session.getIndexed());
+        Assert.assertEquals(0, session.getFailed());
+        // refreshed after the load and settings restored.
+        Assert.assertEquals(3, esClient.getClient().prepareSearch(indexName).setSize(0).get().getHits().getTotalHits());
+        Settings settings = esClient.getClient().admin().indices().prepareGetSettings(indexName).get().getIndexToSettings().get(indexName);
+        Assert.assertEquals("30s", settings.get("index.refresh_interval"));
+        Assert.assertEquals("0", settings.get("index.number_of_replicas"));
+        Assert.assertEquals(1, metricsRegistry.get(IMetricsRegistry.LATENCY, "bulk", "LogEntry").getCount());
+
+        // settings of the indices behind an alias are restored on the concrete indices.
+        esClient.getClient().admin().indices().prepareAliases().addAlias(indexName, indexName + "_alias").execute().actionGet();
+        session = indexManager.bulkLoad(LogEntry.class, loadSession -> loadSession.add("3", "{\"message\":\"Entry 3\"}"), 0, indexName + "_alias");
+        Assert.assertEquals(1, session.getIndexed());
+        settings = esClient.getClient().admin().indices().prepareGetSettings(indexName).get().getIndexToSettings().get(indexName);
+        Assert.assertEquals("30s", settings.get("index.refresh_interval"));
+        Assert.assertEquals(4, esClient.getClient().prepareSearch(indexName).setSize(0).get().getHits().getTotalHits());
+    }
+
+    @Test
+    public void testReindex() throws Exception {
+        String alias = "person_alias";
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        String[] existingIndices = esClient.getClient().admin().indices().prepareGetIndex().addIndices(alias + "*").get().getIndices();
+        if (existingIndices.length > 0) {
+            esClient.getClient().admin().indices().prepareDelete(existingIndices).execute().actionGet();
+        }
+        // a concrete index named as the alias is migrated to a versioned index.
+        esClient.getClient().admin().indices().prepareCreate(alias).addMapping("_doc", mappingBuilder.getMapping(Person.class), XContentType.JSON)
+                .execute().actionGet();
+        for (int i = 0; i < 3; i++) {
+            Person person = new Person();
+            person.setId(String.valueOf(i));
+            person.setLastname("Name " + i);
+            esClient.getClient().prepareIndex(alias, "_doc", person.getId()).setSource(jsonMapper.writeValueAsString(person), XContentType.JSON)
+                    .setRefreshPolicy(RefreshPolicy.IMMEDIATE).get();
+        }
+
+        Assert.assertEquals(alias + "_v1", indexManager.reindex(Person.class, alias, 2));
+        Assert.assertArrayEquals(new String[] { alias + "_v1" }, indexManager.getAliasedIndices(alias));
+        Assert.assertEquals(3, queryHelper.buildQuery().types(Person.class).prepareSearch(alias).execute(0, 10).getHits().getTotalHits());
+
+        Assert.assertEquals(alias + "_v2", indexManager.reindex(Person.class, alias, 1));
+        Assert.assertArrayEquals(new String[] { alias + "_v2" }, indexManager.getAliasedIndices(alias));
+        Assert.assertEquals(3, queryHelper.buildQuery().types(Person.class).prepareSearch(alias).execute(0, 10).getHits().getTotalHits());
+        // previous version is kept to allow a rollback and writes are not blocked anymore.
+        Assert.assertTrue(esClient.getClient().admin().indices().prepareExists(alias + "_v1").get().isExists());
+        Settings settings = esClient.getClient().admin().indices().prepareGetSettings(alias + "_v1").get().getIndexToSettings().get(alias + "_v1");
+        Assert.assertNull(settings.get("index.blocks.write"));
+        // documents without _source or with fields excluded from the _source cannot be copied.
+        try {
+            indexManager.reindex(LogEntry.class, "logentry_alias", 1);
+            Assert.fail("Reindex of a class without _source must fail.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            indexManager.reindex(Country.class, "country_alias", 1);
+            Assert.fail("Reindex of a class with source excludes must fail.");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        Assert.assertEquals(4, metricsRegistry.get(IMetricsRegistry.LATENCY, "reindex", "Person").getCount());
+    }
+
+    @Test
+    public void testTimePartitionedIndices() throws Exception {
+        String baseIndex = "event";
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        String[] existingIndices = esClient.getClient().admin().indices().prepareGetIndex().addIndices(TimePartitions.indexPattern(baseIndex)).get()
+                .getIndices();
+        if (existingIndices.length > 0) {
+            esClient.getClient().admin().indices().prepareDelete(existingIndices).execute().actionGet();
+        }
+        indexManager.putTimePartitionTemplate(Event.class, baseIndex);
+        String[] days = new String[] { "2020-12-30", "2020-12-31", "2021-01-01" };
+        for (String day : days) {
+            Event event = new Event();
+            event.setId(day);
+            event.setMessage("Event of " + day);
+            event.setTimestamp(Date.from(Instant.parse(day + "T12:00:00Z")));
+            String index = indexManager.getWriteIndex(Event.class, baseIndex, event.getTimestamp().getTime());
+            esClient.getClient().prepareIndex(index, "_doc", event.getId()).setSource(jsonMapper.writeValueAsString(event), XContentType.JSON)
+                    .setRefreshPolicy(RefreshPolicy.IMMEDIATE).get();
+        }
+        Assert.assertTrue(esClient.getClient().admin().indices().prepareExists("event-2020.12.31").get().isExists());
+
+        Assert.assertEquals(3, queryHelper.buildQuery().types(Event.class).prepareSearch(baseIndex).execute(0, 10).getHits().getTotalHits());
+        Map<String, FilterSpec> filterSpecs = Maps.newHashMap();
+        filterSpecs.put("timestamp", FilterSpec.dateRange(Instant.parse("2020-12-31T00:00:00Z"), Instant.parse("2021-01-01T00:00:00Z")));
+        QueryHelper.ISearchQueryBuilderHelper searchQueryBuilderHelper = queryHelper.buildQuery().types(Event.class).filterSpecs(filterSpecs)
+                .prepareSearch(baseIndex);
+        SearchResponse response = searchQueryBuilderHelper.execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("2020-12-31", response.getHits().getAt(0).getId());
+        Assert.assertArrayEquals(new String[] { "event-2020.12.31" }, searchQueryBuilderHelper.getSearchRequestBuilder().request().indices());
+        // the partitions are computed from the requested indices on every execution.
+        Assert.assertEquals(1, searchQueryBuilderHelper.execute(0, 10).getHits().getTotalHits());
+        Assert.assertArrayEquals(new String[] { "event-2020.12.31" }, searchQueryBuilderHelper.getSearchRequestBuilder().request().indices());
+        // concrete partitions and patterns are not base indices and are searched as requested.
+        response = queryHelper.buildQuery().types(Event.class).filterSpecs(filterSpecs).prepareSearch("event-2020.12.31").execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        response = queryHelper.buildQuery().types(Event.class).filterSpecs(filterSpecs).prepareSearch(TimePartitions.indexPattern(baseIndex))
+                .execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+
+        // partitions without documents do not exist.
+        filterSpecs.put("timestamp", FilterSpec.dateRange(Instant.parse("2020-12-29T00:00:00Z"), Instant.parse("2020-12-31T00:00:00Z")));
+        response = queryHelper.buildQuery().types(Event.class).filterSpecs(filterSpecs).prepareSearch(baseIndex).execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals("2020-12-30", response.getHits().getAt(0).getId());
+    }
+
+    @Test
+    public void testIndexTemplates() throws Exception {
+        String indexName = "account-acme";
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        if (esClient.getClient().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+            esClient.getClient().admin().indices().prepareDelete(indexName).execute().actionGet();
+        }
+        InMemoryMetricsRegistry.Stats putTemplateLatency = metricsRegistry.get(IMetricsRegistry.LATENCY, "put_template", "account");
+        long putTemplateCount = putTemplateLatency == null ? 0 : putTemplateLatency.getCount();
+        indexManager.putIndexTemplates();
+        Assert.assertEquals(1, esClient.getClient().admin().indices().prepareGetTemplates("account").get().getIndexTemplates().size());
+
+        // the index of the tenant is created on the first write.
+        Account account = new Account();
+        account.setId("1");
+        account.setTenant("acme");
+        account.setName("Acme corporation");
+        esClient.getClient().prepareIndex(indexName, "_doc", account.getId()).setSource(jsonMapper.writeValueAsString(account), XContentType.JSON)
+                .setRefreshPolicy(RefreshPolicy.IMMEDIATE).get();
+        Map<String, Object> tenantMapping = esClient.getClient().admin().indices().prepareGetFieldMappings(indexName).setFields("tenant").get()
+                .fieldMappings(indexName, "_doc", "tenant").sourceAsMap();
+        Assert.assertEquals("keyword", ((Map<?, ?>) tenantMapping.get("tenant")).get("type"));
+
+        Map<String, String[]> filters = Maps.newHashMap();
+        filters.put("tenant", new String[] { "acme" });
+        SearchResponse response = queryHelper.buildQuery().types(Account.class).filters(filters).prepareSearch("account").execute(0, 10);
+        Assert.assertEquals(1, response.getHits().getTotalHits());
+        Assert.assertEquals(putTemplateCount + 1, metricsRegistry.get(IMetricsRegistry.LATENCY, "put_template", "account").getCount());
+    }
+
+    @Test
+    public void testDynamicMapping() throws Exception {
+        String indexName = "account-dynamic";
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        if (esClient.getClient().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+            esClient.getClient().admin().indices().prepareDelete(indexName).execute().actionGet();
+        }
+        indexManager.putIndexTemplates();
+
+        Account account = new Account();
+        account.setId("1");
+        account.setTenant("dynamic");
+        account.setLabels(Maps.newHashMap(ImmutableMap.of("env", "prod")));
+        account.setMetadata(Maps.newHashMap(ImmutableMap.of("note", "free text")));
+        esClient.getClient().prepareIndex(indexName, "_doc", account.getId()).setSource(jsonMapper.writeValueAsString(account), XContentType.JSON)
+                .setRefreshPolicy(RefreshPolicy.IMMEDIATE).get();
+        Map<String, Object> labelMapping = esClient.getClient().admin().indices().prepareGetFieldMappings(indexName).setFields("labels.env").get()
+                .fieldMappings(indexName, "_doc", "labels.env").sourceAsMap();
+        Assert.assertEquals("keyword", ((Map<?, ?>) labelMapping.get("env")).get("type"));
+        // metadata keys are kept in the source only.
+        Assert.assertNull(esClient.getClient().admin().indices().prepareGetFieldMappings(indexName).setFields("metadata.note").get()
+                .fieldMappings(indexName, "_doc", "metadata.note"));
+
+        try {
+            esClient.getClient().prepareIndex(indexName, "_doc", "2").setSource("{\"unknown\":\"value\"}", XContentType.JSON).get();
+            Assert.fail("Unknown fields must be rejected by the strict mapping.");
+        } catch (MapperParsingException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Recreate the country index (the mapping may have changed since the index was created) with France and Finland.
+     */
+    private String initCountries() throws Exception {
+        String indexName = Country.class.getSimpleName().toLowerCase();
+        mappingBuilder.initialize("org.elasticsearch.mapping.model");
+        if (esClient.getClient().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+            esClient.getClient().admin().indices().prepareDelete(indexName).execute().actionGet();
+        }
+        esClient.getClient().admin().indices().prepareCreate(indexName).setSettings(mappingBuilder.getIndexSettings(Country.class), XContentType.JSON)
+                .addMapping("_doc", mappingBuilder.getMapping(Country.class), XContentType.JSON).execute().actionGet();
+        esClient.waitForGreenStatus(indexName);
+        saveCountry(indexName, "France", "Paris", "1957-03-25T00:00:00Z", "Republic with a written constitution");
+        saveCountry(indexName, "Finland", "Helsinki", "1995-01-01T00:00:00Z", "Republic with many lakes");
+        return indexName;
+    }
+
+    private void saveCountry(String indexName, String name, String capital, String joined, String description) throws JsonProcessingException {
+        Country country = new Country();
+        country.setName(name);
+        country.setCode(name.substring(0, 2));
+        country.setCapital(capital);
+        country.setJoined(Date.from(Instant.parse(joined)));
+        country.setDescription(description);
+        esClient.getClient().prepareIndex(indexName, "_doc", name).setSource(jsonMapper.writeValueAsString(country), XContentType.JSON)
+                .setRefreshPolicy(RefreshPolicy.IMMEDIATE).execute().actionGet();
+    }
+
     public void initIndexes(String indexName, Class<?>[] classes) throws Exception {
         // check if existing before
         final ActionFuture<IndicesExistsResponse> indexExistFuture = esClient.getClient().admin().indices().exists(new IndicesExistsRequest(indexName));
@@ -0,0 +1,60 @@
+package org.elasticsearch.mapping;
+
+import org.elasticsearch.mapping.model.Person;
+import org.elasticsearch.search.aggregations.InternalAggregations;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class FacetCacheTest {
+    private FacetCache facetCache;
+
+    @Before
+    public void setUp() {
+        facetCache = new FacetCache();
+        facetCache.setMaxSize("10");
+        facetCache.initialize();
+    }
+
+    @Test
+    public void testDisabledByDefault() {
+        FacetCache disabled = new FacetCache();
+        disabled.initialize();
+        Assert.assertFalse(disabled.isEnabled());
+        disabled.put(key("person"), InternalAggregations.EMPTY);
+        Assert.assertNull(disabled.get(key("person")));
+    }
+
+    @Test
+    public void testGetAndInvalidate() {
+        Assert.assertTrue(facetCache.isEnabled());
+        facetCache.put(key("person"), InternalAggregations.EMPTY);
+        facetCache.put(key("city"), InternalAggregations.EMPTY);
+        Assert.assertSame(InternalAggregations.EMPTY, facetCache.get(key("person")));
+
+        facetCache.invalidate("person");
+        Assert.assertNull(facetCache.get(key("person")));
+        Assert.assertNotNull(facetCache.get(key("city")));
+
+        facetCache.invalidateAll();
+        Assert.assertNull(facetCache.get(key("city")));
+    }
+
+    @Test
+    public void testInvalidatePatterns() {
+        facetCache.put(key("event-*"), InternalAggregations.EMPTY);
+        facetCache.put(key("_all"), InternalAggregations.EMPTY);
+        facetCache.put(key("city"), InternalAggregations.EMPTY);
+        // searched patterns and all indices match the written indices.
+        facetCache.invalidate("event-2020.12.31", "event");
+        Assert.assertNull(facetCache.get(key("event-*")));
+        Assert.assertNull(facetCache.get(key("_all")));
+        Assert.assertNotNull(facetCache.get(key("city")));
+    }
+
+    private FacetCache.Key key(String index) {
+        return new FacetCache.Key(Lists.newArrayList(Person.class.getName()), new String[] { index }, "{\"match_all\":{}}", "[lastname]");
+    }
+}
@@ -1,17 +1,43 @@
 package org.elasticsearch.mapping;
 
 import java.beans.IntrospectionException;
+import java.beans.Transient;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
+import org.elasticsearch.annotation.DateField;
+import org.elasticsearch.annotation.DynamicTemplate;
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.NumberField;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.TimeStamp;
+import org.elasticsearch.annotation.query.TermFilter;
+import org.elasticsearch.annotation.query.TermsFacet;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.mapping.model.Account;
 import org.elasticsearch.mapping.model.City;
+import org.elasticsearch.mapping.model.Country;
+import org.elasticsearch.mapping.model.Event;
+import org.elasticsearch.mapping.model.LogEntry;
 import org.elasticsearch.mapping.model.Person;
+import org.elasticsearch.mapping.model.Product;
+import org.elasticsearch.search.aggregations.AggregationBuilder;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.Maps;
+
 /**
  * Test the mappings.
  * 
@@ -42,6 +68,425 @@ public class MappingBuilderTest {
         assertSameContent(cityMapping, "src/test/resources/city-mapping.json");
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSearchAsYouTypeMapping() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Country.class), Map.class);
+        Map<String, Object> all = (Map<String, Object>) ((Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("properties")).get("all");
+        Assert.assertEquals("simple", all.get("analyzer"));
+        Assert.assertEquals(true, all.get("index_phrases"));
+        Assert.assertTrue(all.containsKey("index_prefixes"));
+        Map<String, Object> prefix = (Map<String, Object>) ((Map<String, Object>) all.get("fields")).get("prefix");
+        Assert.assertEquals("all_edge_ngram", prefix.get("analyzer"));
+        Assert.assertEquals("all_edge_ngram_search", prefix.get("search_analyzer"));
+
+        Map<String, Object> settings = mapper.readValue(mappingBuilder.getIndexSettings(Country.class), Map.class);
+        Map<String, Object> analysis = (Map<String, Object>) settings.get("analysis");
+        Map<String, Object> analyzers = (Map<String, Object>) analysis.get("analyzer");
+        Assert.assertEquals(Arrays.asList("lowercase", "all_edge_ngram_filter"), ((Map<String, Object>) analyzers.get("all_edge_ngram")).get("filter"));
+        Map<String, Object> searchAnalyzer = (Map<String, Object>) analyzers.get("all_edge_ngram_search");
+        Assert.assertEquals("standard", searchAnalyzer.get("tokenizer"));
+        Assert.assertEquals(Arrays.asList("lowercase"), searchAnalyzer.get("filter"));
+        Map<String, Object> filter = (Map<String, Object>) ((Map<String, Object>) analysis.get("filter")).get("all_edge_ngram_filter");
+        Assert.assertEquals("edge_ngram", filter.get("type"));
+        Assert.assertEquals(1, filter.get("min_gram"));
+        Assert.assertEquals(10, filter.get("max_gram"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testNormalizerMapping() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Country.class), Map.class);
+        Map<String, Object> code = (Map<String, Object>) ((Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("properties")).get("code");
+        Assert.assertEquals("keyword", code.get("type"));
+        Assert.assertEquals("lowercase_normalizer", code.get("normalizer"));
+        Assert.assertFalse(code.containsKey("fielddata"));
+
+        Map<String, Object> settings = mapper.readValue(mappingBuilder.getIndexSettings(Country.class), Map.class);
+        Map<String, Object> normalizer = (Map<String, Object>) ((Map<String, Object>) ((Map<String, Object>) settings.get("analysis")).get("normalizer"))
+                .get("lowercase_normalizer");
+        Assert.assertEquals("custom", normalizer.get("type"));
+        Assert.assertEquals(Arrays.asList("lowercase"), normalizer.get("filter"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testKeywordSubFieldMapping() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Country.class), Map.class);
+        Map<String, Object> name = (Map<String, Object>) ((Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("properties")).get("name");
+        Assert.assertEquals("text", name.get("type"));
+        Assert.assertFalse(name.containsKey("fielddata"));
+        Map<String, Object> keyword = (Map<String, Object>) ((Map<String, Object>) name.get("fields")).get("keyword");
+        Assert.assertEquals("keyword", keyword.get("type"));
+        Assert.assertEquals("name.keyword", mappingBuilder.getSortField(Country.class.getName(), "name"));
+        Assert.assertEquals("code", mappingBuilder.getSortField(Country.class.getName(), "code"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testMappingOptimization() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Country.class), Map.class);
+        Map<String, Object> properties = (Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("properties");
+        // filter only keyword.
+        Assert.assertEquals(false, ((Map<String, Object>) properties.get("code")).get("doc_values"));
+        // filter only text.
+        Map<String, Object> capital = (Map<String, Object>) properties.get("capital");
+        Assert.assertEquals(false, capital.get("norms"));
+        Assert.assertEquals("docs", capital.get("index_options"));
+        // faceted and sorted text.
+        Map<String, Object> name = (Map<String, Object>) properties.get("name");
+        Assert.assertFalse(name.containsKey("norms"));
+        Assert.assertFalse(((Map<String, Object>) ((Map<String, Object>) name.get("fields")).get("keyword")).containsKey("doc_values"));
+
+        MappingOptimizer.Report report = mappingBuilder.getOptimizationReport(Country.class);
+        Assert.assertEquals(Arrays.asList("code"), report.getDocValuesDisabled());
+        Assert.assertEquals(Arrays.asList("capital"), report.getNormsDisabled());
+        Assert.assertEquals(1, report.getNormsBytesPerDocument());
+        Assert.assertNull(mappingBuilder.getOptimizationReport(Person.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSourceExcludes() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Country.class), Map.class);
+        Map<String, Object> source = (Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("_source");
+        Assert.assertEquals(Arrays.asList("description"), source.get("excludes"));
+        Assert.assertFalse(mappingBuilder.getMapping(Person.class).contains("_source"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testCompactNumberMapping() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = mapper.readValue(mappingBuilder.getMapping(Product.class), Map.class);
+        Map<String, Object> properties = (Map<String, Object>) ((Map<String, Object>) mapping.get("_doc")).get("properties");
+        Map<String, Object> price = (Map<String, Object>) properties.get("price");
+        Assert.assertEquals("scaled_float", price.get("type"));
+        Assert.assertEquals(100.0, price.get("scaling_factor"));
+        Assert.assertEquals("half_float", ((Map<String, Object>) properties.get("score")).get("type"));
+        Assert.assertEquals("short", ((Map<String, Object>) properties.get("stock")).get("type"));
+        Map<String, Object> priceRange = (Map<String, Object>) properties.get("priceRange");
+        Assert.assertEquals("double_range", priceRange.get("type"));
+        Assert.assertFalse(priceRange.containsKey("properties"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexSettings() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> settings = mapper.readValue(mappingBuilder.getIndexSettings(LogEntry.class), Map.class);
+        Assert.assertEquals(1, settings.get("number_of_shards"));
+        Assert.assertEquals(0, settings.get("number_of_replicas"));
+        Assert.assertEquals("30s", settings.get("refresh_interval"));
+        Assert.assertEquals("best_compression", settings.get("codec"));
+        Assert.assertEquals(Arrays.asList("timestamp"), settings.get("sort.field"));
+        Assert.assertEquals(Arrays.asList("desc"), settings.get("sort.order"));
+        Assert.assertFalse(settings.containsKey("max_result_window"));
+        Assert.assertFalse(settings.containsKey("analysis"));
+        Assert.assertNull(mappingBuilder.getIndexSettings(Person.class));
+    }
+
+    @Test(expected = MappingException.class)
+    public void testTimePartitionWithTermFilteredTimeStamp() throws IntrospectionException, IOException {
+        // the term filter would get the date range filters used to select the partitions.
+        mappingBuilder.parseClassAnnotations(TermFilteredEvent.class, "");
+    }
+
+    /** {@link Event} with a term filter on the timestamp. */
+    @ESObject
+    public static class TermFilteredEvent {
+        @TermFilter
+        @TimeStamp(partition = TimePartition.DAILY)
+        @DateField(epochMillis = true, includeInAll = false)
+        private Date timestamp;
+
+        public Date getTimestamp() {
+            return timestamp;
+        }
+
+        public void setTimestamp(Date timestamp) {
+            this.timestamp = timestamp;
+        }
+    }
+
+    @Test
+    public void testTimePartition() {
+        Assert.assertEquals(TimePartition.DAILY, mappingBuilder.getTimePartition(Event.class.getName()));
+        Assert.assertEquals("timestamp", mappingBuilder.getTimeStampField(Event.class.getName()));
+        Assert.assertTrue(mappingBuilder.getFilters(Event.class).contains(new DateRangeFilterBuilderHelper(null, "timestamp")));
+        Assert.assertEquals(TimePartition.NONE, mappingBuilder.getTimePartition(LogEntry.class.getName()));
+
+        long from = Instant.parse("2020-12-30T10:00:00Z").toEpochMilli();
+        long to = Instant.parse("2021-01-02T00:00:00Z").toEpochMilli();
+        Assert.assertEquals("event-2020.12.30", TimePartitions.indexName("event", TimePartition.DAILY, from));
+        Assert.assertArrayEquals(new String[] { "event-2020.12.30", "event-2020.12.31", "event-2021.01.01" },
+                TimePartitions.indexNames("event", TimePartition.DAILY, from, to));
+        // ISO weeks: 2020-12-30 is in the week 53 of 2020.
+        Assert.assertArrayEquals(new String[] { "event-2020.w53" }, TimePartitions.indexNames("event", TimePartition.WEEKLY, from, to));
+        Assert.assertArrayEquals(new String[] { "event-2020.12", "event-2021.01" }, TimePartitions.indexNames("event", TimePartition.MONTHLY, from, to));
+        Assert.assertNull(TimePartitions.indexNames("event", TimePartition.DAILY, from, Long.MAX_VALUE));
+        Assert.assertNull(TimePartitions.indexNames("event", TimePartition.DAILY, 0, to));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testIndexTemplate() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        IndexTemplateSource accountTemplate = mappingBuilder.getIndexTemplate(Account.class);
+        Assert.assertEquals("account", accountTemplate.getName());
+        Map<String, Object> template = mapper.readValue(accountTemplate.getSource(), Map.class);
+        Assert.assertEquals(Arrays.asList("account-*"), template.get("index_patterns"));
+        Assert.assertEquals(1, template.get("order"));
+        Assert.assertEquals(1, ((Map<String, Object>) template.get("settings")).get("number_of_shards"));
+        Assert.assertEquals(mapper.readValue(mappingBuilder.getMapping(Account.class), Map.class), template.get("mappings"));
+        Assert.assertTrue(((Map<String, Object>) template.get("aliases")).containsKey("account"));
+
+        // time partitioned classes have a default template.
+        Assert.assertEquals("event", mappingBuilder.getIndexTemplate(Event.class).getName());
+        Assert.assertNull(mappingBuilder.getIndexTemplate(Person.class));
+        Assert.assertEquals(2, mappingBuilder.getIndexTemplates().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDynamicMapping() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> mapping = (Map<String, Object>) mapper.readValue(mappingBuilder.getMapping(Account.class), Map.class).get("_doc");
+        Assert.assertEquals("strict", mapping.get("dynamic"));
+        Map<String, Object> properties = (Map<String, Object>) mapping.get("properties");
+        Assert.assertEquals("false", ((Map<String, Object>) properties.get("metadata")).get("dynamic"));
+        Map<String, Object> labels = (Map<String, Object>) properties.get("labels");
+        Assert.assertEquals("true", labels.get("dynamic"));
+        Assert.assertFalse(labels.containsKey("dynamic_templates"));
+        // field templates are moved to the root object and scoped to the field.
+        List<Map<String, Object>> dynamicTemplates = (List<Map<String, Object>>) mapping.get("dynamic_templates");
+        Assert.assertEquals(1, dynamicTemplates.size());
+        Map<String, Object> labelsTemplate = (Map<String, Object>) dynamicTemplates.get(0).get("labels");
+        Assert.assertEquals("labels.*", labelsTemplate.get("path_match"));
+        Assert.assertEquals("string", labelsTemplate.get("match_mapping_type"));
+        Assert.assertEquals("keyword", ((Map<String, Object>) labelsTemplate.get("mapping")).get("type"));
+        Assert.assertEquals(Arrays.asList("labels"), mappingBuilder.getDynamicFields(Account.class.getName()));
+
+        mappingBuilder.parseClassAnnotations(FreeForm.class, "");
+        mapping = (Map<String, Object>) mapper.readValue(mappingBuilder.getMapping(FreeForm.class), Map.class).get("_doc");
+        Assert.assertFalse(mapping.containsKey("dynamic"));
+        Map<String, Object> stringsTemplate = (Map<String, Object>) ((List<Map<String, Object>>) mapping.get("dynamic_templates")).get(0).get("strings");
+        Assert.assertFalse(stringsTemplate.containsKey("path_match"));
+        Assert.assertEquals(false, ((Map<String, Object>) stringsTemplate.get("mapping")).get("doc_values"));
+        Assert.assertEquals(Arrays.asList("attributes"), mappingBuilder.getDynamicFields(FreeForm.class.getName()));
+        // properties without mapping are mapped dynamically.
+        Assert.assertEquals(Arrays.asList("id"), mappingBuilder.getDynamicFields(Person.class.getName()));
+    }
+
+    @Test(expected = MappingException.class)
+    public void testStrictDynamicMappingWithUnmappedField() throws IntrospectionException, IOException {
+        mappingBuilder.parseClassAnnotations(StrictUnmapped.class, "");
+    }
+
+    @ESObject(dynamic = DynamicMapping.STRICT)
+    public static class StrictUnmapped {
+        private String value;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+    }
+
+    @Test
+    public void testStrictDynamicMappingWithIgnoredProperties() throws IntrospectionException, IOException {
+        // properties that jackson does not serialize are never indexed.
+        mappingBuilder.parseClassAnnotations(StrictIgnored.class, "");
+        Assert.assertTrue(mappingBuilder.getDynamicFields(StrictIgnored.class.getName()).isEmpty());
+    }
+
+    @ESObject(dynamic = DynamicMapping.STRICT)
+    @JsonIgnoreProperties({ "cached" })
+    public static class StrictIgnored {
+        @StringField
+        private String value;
+        @JsonIgnore
+        private String computed;
+        private String cached;
+        private transient String session;
+
+        public String getValue() {
+            return value;
+        }
+
+        public void setValue(String value) {
+            this.value = value;
+        }
+
+        public String getComputed() {
+            return computed;
+        }
+
+        public void setComputed(String computed) {
+            this.computed = computed;
+        }
+
+        public String getCached() {
+            return cached;
+        }
+
+        public void setCached(String cached) {
+            this.cached = cached;
+        }
+
+        @Transient
+        public String getSession() {
+            return session;
+        }
+
+        public void setSession(String session) {
+            this.session = session;
+        }
+    }
+
+    @ESObject(dynamicTemplates = @DynamicTemplate(name = "strings", matchMappingType = "string", docValues = false))
+    public static class FreeForm {
+        private Map<String, String> attributes;
+
+        public Map<String, String> getAttributes() {
+            return attributes;
+        }
+
+        public void setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTermsFacetOptions() throws IntrospectionException, IOException {
+        ObjectMapper mapper = new ObjectMapper();
+        mappingBuilder.parseClassAnnotations(TunedFacets.class, "");
+        Map<String, Object> properties = (Map<String, Object>) ((Map<String, Object>) mapper.readValue(mappingBuilder.getMapping(TunedFacets.class),
+                Map.class).get("_doc")).get("properties");
+        Assert.assertEquals(true, ((Map<String, Object>) properties.get("category")).get("eager_global_ordinals"));
+        Map<String, Object> label = (Map<String, Object>) properties.get("label");
+        Assert.assertFalse(label.containsKey("eager_global_ordinals"));
+        Assert.assertEquals(true, ((Map<String, Object>) ((Map<String, Object>) label.get("fields")).get("keyword")).get("eager_global_ordinals"));
+        Assert.assertFalse(((Map<String, Object>) properties.get("tag")).containsKey("eager_global_ordinals"));
+
+        Map<String, TermsAggregationBuilderHelper> facets = Maps.newHashMap();
+        for (IFacetBuilderHelper facet : mappingBuilder.getFacets(TunedFacets.class)) {
+            facets.put(facet.getEsFieldName(), (TermsAggregationBuilderHelper) facet);
+        }
+        List<AggregationBuilder> categoryAggregations = facets.get("category").buildFacets();
+        Assert.assertEquals(2, categoryAggregations.size());
+        Map<String, Object> category = (Map<String, Object>) ((Map<String, Object>) mapper.readValue(Strings.toString(categoryAggregations.get(0)),
+                Map.class).get("category")).get("terms");
+        Assert.assertEquals("category", category.get("field"));
+        Assert.assertEquals(5, category.get("size"));
+        Assert.assertEquals(50, category.get("shard_size"));
+        Assert.assertEquals("map", category.get("execution_hint"));
+        Assert.assertEquals("breadth_first", category.get("collect_mode"));
+        Map<String, Object> missing = (Map<String, Object>) ((Map<String, Object>) mapper.readValue(Strings.toString(categoryAggregations.get(1)),
+                Map.class).get("missing_category")).get("missing");
+        Assert.assertEquals("category", missing.get("field"));
+
+        // no missing aggregation, defaults are left to elastic search.
+        List<AggregationBuilder> labelAggregations = facets.get("label").buildFacets();
+        Assert.assertEquals(1, labelAggregations.size());
+        Map<String, Object> labelTerms = (Map<String, Object>) ((Map<String, Object>) mapper.readValue(Strings.toString(labelAggregations.get(0)),
+                Map.class).get("label")).get("terms");
+        Assert.assertEquals("label.keyword", labelTerms.get("field"));
+        Assert.assertEquals("depth_first", labelTerms.get("collect_mode"));
+        Assert.assertFalse(labelTerms.containsKey("execution_hint"));
+    }
+
+    @ESObject
+    public static class TunedFacets {
+        @TermsFacet(size = 5, shardSize = 50, executionHint = TermsExecutionHint.MAP, collectMode = TermsCollectMode.BREADTH_FIRST,
+                eagerGlobalOrdinals = true)
+        @StringField(indexType = IndexType.not_analyzed)
+        private String category;
+        @TermsFacet(missing = false, collectMode = TermsCollectMode.DEPTH_FIRST, eagerGlobalOrdinals = true)
+        @StringField(indexType = IndexType.analyzed)
+        private String label;
+        @TermsFacet
+        @StringField(indexType = IndexType.not_analyzed)
+        private String tag;
+
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        public void setLabel(String label) {
+            this.label = label;
+        }
+
+        public String getTag() {
+            return tag;
+        }
+
+        public void setTag(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @Test(expected = MappingException.class)
+    public void testIntegralTypeOnFloatingPointField() throws IntrospectionException, IOException {
+        mappingBuilder.parseClassAnnotations(InvalidNumber.class, "");
+    }
+
+    @Test
+    public void testResolvedFetchContext() {
+        ResolvedFetchContext list = mappingBuilder.getFetchSource(new Class[] { Product.class, Product.class }, "list");
+        Assert.assertSame(list, mappingBuilder.getFetchSource(new Class[] { Product.class, Product.class }, "list"));
+        Assert.assertArrayEquals(new String[] { "price", "stock" }, list.getIncludes());
+        Assert.assertNull(list.getExcludes());
+        // scaled float doc values are rounded, the price is fetched from the source.
+        Assert.assertFalse(list.isSourceLess());
+        Assert.assertNull(list.getDocValueFields());
+
+        // range fields have no doc values.
+        ResolvedFetchContext detail = mappingBuilder.getFetchSource(new Class[] { Product.class }, "detail");
+        Assert.assertArrayEquals(new String[] { "price", "priceRange" }, detail.getIncludes());
+        Assert.assertFalse(detail.isSourceLess());
+
+        // text fields have no doc values, the optimized country mapping keeps them on the aggregated date.
+        Assert.assertFalse(mappingBuilder.getFetchSource(new Class[] { Country.class, null }, "list").isSourceLess());
+        ResolvedFetchContext summary = mappingBuilder.getFetchSource(new Class[] { Country.class }, "summary");
+        Assert.assertTrue(summary.isSourceLess());
+        Assert.assertArrayEquals(new String[] { "joined" }, summary.getDocValueFields());
+        // normalized keywords doc values are lowercased.
+        Assert.assertFalse(mappingBuilder.getFetchSource(new Class[] { Country.class }, "code").isSourceLess());
+        Assert.assertNull(mappingBuilder.getFetchSource(new Class[] { Country.class }, "unknown").getIncludes());
+    }
+
+    @ESObject
+    public static class InvalidNumber {
+        @NumberField(type = NumberType.INTEGER)
+        private double value;
+
+        public double getValue() {
+            return value;
+        }
+
+        public void setValue(double value) {
+            this.value = value;
+        }
+    }
+
     private void assertSameContent(String content, String expectedContentFromFile) throws IOException {
         BufferedReader brMappingTest = new BufferedReader(new FileReader(Paths.get(expectedContentFromFile).toFile()));
         String expectedMapping = brMappingTest.readLine();
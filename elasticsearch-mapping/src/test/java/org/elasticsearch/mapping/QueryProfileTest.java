@@ -0,0 +1,47 @@
+package org.elasticsearch.mapping;
+
+import java.util.Collections;
+
+import org.elasticsearch.search.profile.ProfileResult;
+import org.elasticsearch.search.profile.ProfileShardResult;
+import org.elasticsearch.search.profile.aggregation.AggregationProfileShardResult;
+import org.elasticsearch.search.profile.query.CollectorResult;
+import org.elasticsearch.search.profile.query.QueryProfileShardResult;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class QueryProfileTest {
+
+    @Test
+    public void testShardProfile() {
+        ProfileResult termQuery = new ProfileResult("TermQuery", "lastname:doe", ImmutableMap.of("score", 10L, "build_scorer", 5L),
+                Collections.emptyList());
+        CollectorResult collector = new CollectorResult("SimpleTopScoreDocCollector", CollectorResult.REASON_SEARCH_TOP_HITS, 7L,
+                Collections.emptyList());
+        QueryProfileShardResult queryResult = new QueryProfileShardResult(Lists.newArrayList(termQuery), 3L, collector);
+
+        ProfileResult missing = new ProfileResult("MissingAggregator", "missing_city", ImmutableMap.of("collect", 2L), Collections.emptyList());
+        ProfileResult city = new ProfileResult("FilterAggregator", "filtered_city", ImmutableMap.of("collect", 4L), Lists.newArrayList(missing));
+        AggregationProfileShardResult aggregationResult = new AggregationProfileShardResult(Lists.newArrayList(city));
+
+        QueryProfile.ShardProfile shardProfile = QueryProfile.ShardProfile.from("[node][person][0]",
+                new ProfileShardResult(Lists.newArrayList(queryResult), aggregationResult));
+
+        Assert.assertEquals(15L, shardProfile.getQueryTime());
+        Assert.assertEquals(3L, shardProfile.getRewriteTime());
+        Assert.assertEquals(7L, shardProfile.getCollectorTime());
+        Assert.assertEquals(Long.valueOf(4L), shardProfile.getAggregationTimes().get("filtered_city"));
+        Assert.assertEquals(Long.valueOf(2L), shardProfile.getAggregationTimes().get("filtered_city>missing_city"));
+    }
+
+    @Test
+    public void testSampling() {
+        QueryProfiler queryProfiler = new QueryProfiler();
+        Assert.assertFalse(queryProfiler.sample());
+        queryProfiler.setSampleRate("1");
+        Assert.assertTrue(queryProfiler.sample());
+    }
+}
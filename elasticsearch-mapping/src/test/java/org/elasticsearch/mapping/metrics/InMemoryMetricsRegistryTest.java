@@ -0,0 +1,31 @@
+package org.elasticsearch.mapping.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class InMemoryMetricsRegistryTest {
+
+    @Test
+    public void testRecord() {
+        InMemoryMetricsRegistry registry = new InMemoryMetricsRegistry();
+        registry.recordTime(IMetricsRegistry.LATENCY, "search", "Person", 3);
+        registry.recordTime(IMetricsRegistry.LATENCY, "search", "Person", 120);
+        registry.recordTime(IMetricsRegistry.LATENCY, "search", "Person", 60000);
+        registry.increment(IMetricsRegistry.REJECTIONS, "bulk", "Person");
+
+        InMemoryMetricsRegistry.Stats latency = registry.get(IMetricsRegistry.LATENCY, "search", "Person");
+        Assert.assertEquals(3, latency.getCount());
+        Assert.assertEquals(60123, latency.getSum());
+        Assert.assertEquals(60000, latency.getMax());
+        long[] histogram = latency.getHistogram();
+        Assert.assertEquals(1, histogram[2]); // <= 5
+        Assert.assertEquals(1, histogram[7]); // <= 200
+        Assert.assertEquals(1, histogram[histogram.length - 1]);
+
+        Assert.assertEquals(1, registry.get(IMetricsRegistry.REJECTIONS, "bulk", "Person").getCount());
+        Assert.assertNull(registry.get(IMetricsRegistry.LATENCY, "bulk", "Person"));
+
+        registry.clear();
+        Assert.assertTrue(registry.getMetrics().isEmpty());
+    }
+}
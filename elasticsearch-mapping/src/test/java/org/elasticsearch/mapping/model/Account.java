@@ -0,0 +1,76 @@
+package org.elasticsearch.mapping.model;
+
+import java.util.Map;
+
+import org.elasticsearch.annotation.DynamicTemplate;
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.IndexSettings;
+import org.elasticsearch.annotation.IndexTemplate;
+import org.elasticsearch.annotation.ObjectField;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.query.TermFilter;
+import org.elasticsearch.mapping.DynamicMapping;
+import org.elasticsearch.mapping.IndexType;
+
+@ESObject(dynamic = DynamicMapping.STRICT)
+@IndexSettings(numberOfShards = 1, numberOfReplicas = 0)
+@IndexTemplate(order = 1)
+public class Account {
+    @Id
+    @StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+    private String id;
+
+    @TermFilter
+    @StringField(indexType = IndexType.not_analyzed, includeInAll = false)
+    private String tenant;
+
+    @StringField(indexType = IndexType.analyzed, includeInAll = false)
+    private String name;
+
+    @ObjectField(dynamic = DynamicMapping.FALSE)
+    private Map<String, String> metadata;
+
+    @ObjectField(dynamic = DynamicMapping.TRUE, dynamicTemplates = @DynamicTemplate(name = "labels", matchMappingType = "string"))
+    private Map<String, String> labels;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    public void setTenant(String tenant) {
+        this.tenant = tenant;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Map<String, String> getMetadata() {
+        return metadata;
+    }
+
+    public void setMetadata(Map<String, String> metadata) {
+        this.metadata = metadata;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(Map<String, String> labels) {
+        this.labels = labels;
+    }
+}
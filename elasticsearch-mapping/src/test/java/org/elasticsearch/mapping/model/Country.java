@@ -0,0 +1,86 @@
+package org.elasticsearch.mapping.model;
+
+import java.util.Date;
+
+import org.elasticsearch.annotation.DateField;
+import org.elasticsearch.annotation.ESAll;
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Normalizer;
+import org.elasticsearch.annotation.SourceExclude;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.query.DateHistogramFacet;
+import org.elasticsearch.annotation.query.FetchContext;
+import org.elasticsearch.annotation.query.Sortable;
+import org.elasticsearch.annotation.query.TermFilter;
+import org.elasticsearch.annotation.query.TermsFacet;
+import org.elasticsearch.mapping.IndexType;
+
+@ESObject(optimizeMapping = true)
+@ESAll(analyser = "simple", searchAsYouType = true, maxGram = 10, indexPrefixes = true, indexPhrases = true)
+public class Country {
+
+    @FetchContext(contexts = { "list" }, include = { true })
+    @TermsFacet(allTerms = true)
+    @Sortable
+    @StringField(indexType = IndexType.analyzed, indexPrefixesMinChars = 1, indexPrefixesMaxChars = 4)
+    private String name;
+
+    @FetchContext(contexts = { "code" }, include = { true })
+    @TermFilter(lookupThreshold = 1, deduplicate = true)
+    @Normalizer
+    @StringField(indexType = IndexType.analyzed)
+    private String code;
+
+    @TermFilter
+    @StringField(indexType = IndexType.analyzed)
+    private String capital;
+
+    @FetchContext(contexts = { "list", "summary" }, include = { true, true })
+    @DateHistogramFacet(interval = "year", format = "yyyy")
+    @DateField(epochMillis = true, includeInAll = false)
+    private Date joined;
+
+    @SourceExclude
+    @StringField(indexType = IndexType.analyzed)
+    private String description;
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public void setCode(String code) {
+        this.code = code;
+    }
+
+    public String getCapital() {
+        return capital;
+    }
+
+    public void setCapital(String capital) {
+        this.capital = capital;
+    }
+
+    public Date getJoined() {
+        return joined;
+    }
+
+    public void setJoined(Date joined) {
+        this.joined = joined;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public void setDescription(String description) {
+        this.description = description;
+    }
+}
@@ -0,0 +1,50 @@
+package org.elasticsearch.mapping.model;
+
+import java.util.Date;
+
+import org.elasticsearch.annotation.DateField;
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.IndexSettings;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.annotation.TimeStamp;
+import org.elasticsearch.mapping.IndexType;
+import org.elasticsearch.mapping.TimePartition;
+
+@ESObject
+@IndexSettings(numberOfShards = 1, numberOfReplicas = 0)
+public class Event {
+    @Id
+    private String id;
+
+    @StringField(indexType = IndexType.analyzed, includeInAll = false)
+    private String message;
+
+    @TimeStamp(partition = TimePartition.DAILY)
+    @DateField(epochMillis = true, includeInAll = false)
+    private Date timestamp;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+}
@@ -0,0 +1,58 @@
+package org.elasticsearch.mapping.model;
+
+import java.util.Date;
+
+import org.elasticsearch.annotation.DateField;
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.IndexSettings;
+import org.elasticsearch.annotation.NumberField;
+import org.elasticsearch.annotation.StringField;
+import org.elasticsearch.mapping.IndexType;
+
+@ESObject(source = false)
+@IndexSettings(numberOfShards = 1, numberOfReplicas = 0, refreshInterval = "30s", codec = "best_compression", sortFields = "timestamp", sortDescending = true)
+public class LogEntry {
+    @StringField(store = true, indexType = IndexType.analyzed, includeInAll = false)
+    private String message;
+
+    @NumberField(store = true, includeInAll = false)
+    private int level;
+
+    @DateField(store = true, epochMillis = true, includeInAll = false)
+    private Date timestamp;
+
+    @StringField(indexType = IndexType.no, includeInAll = false)
+    private String details;
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public void setLevel(int level) {
+        this.level = level;
+    }
+
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(Date timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    public String getDetails() {
+        return details;
+    }
+
+    public void setDetails(String details) {
+        this.details = details;
+    }
+}
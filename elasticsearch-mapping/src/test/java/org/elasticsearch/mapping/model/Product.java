@@ -0,0 +1,70 @@
+package org.elasticsearch.mapping.model;
+
+import org.elasticsearch.annotation.ESObject;
+import org.elasticsearch.annotation.Id;
+import org.elasticsearch.annotation.NumberField;
+import org.elasticsearch.annotation.RangeField;
+import org.elasticsearch.annotation.query.FetchContext;
+import org.elasticsearch.mapping.NumberType;
+import org.elasticsearch.mapping.RangeType;
+
+@ESObject
+public class Product {
+    @Id
+    private String id;
+
+    @FetchContext(contexts = { "list", "detail" }, include = { true, true })
+    @NumberField(scalingFactor = 100, includeInAll = false)
+    private double price;
+
+    @NumberField(type = NumberType.HALF_FLOAT, includeInAll = false)
+    private float score;
+
+    @FetchContext(contexts = { "list" }, include = { true })
+    @NumberField(minValue = 0, maxValue = 10000, includeInAll = false)
+    private long stock;
+
+    @FetchContext(contexts = { "detail" }, include = { true })
+    @RangeField(type = RangeType.DOUBLE)
+    private ValueRange priceRange;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void setPrice(double price) {
+        this.price = price;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    public void setScore(float score) {
+        this.score = score;
+    }
+
+    public long getStock() {
+        return stock;
+    }
+
+    public void setStock(long stock) {
+        this.stock = stock;
+    }
+
+    public ValueRange getPriceRange() {
+        return priceRange;
+    }
+
+    public void setPriceRange(ValueRange priceRange) {
+        this.priceRange = priceRange;
+    }
+}
@@ -0,0 +1,25 @@
+package org.elasticsearch.mapping.model;
+
+/**
+ * Bounds of a range field.
+ */
+public class ValueRange {
+    private Double gte;
+    private Double lte;
+
+    public Double getGte() {
+        return gte;
+    }
+
+    public void setGte(Double gte) {
+        this.gte = gte;
+    }
+
+    public Double getLte() {
+        return lte;
+    }
+
+    public void setLte(Double lte) {
+        this.lte = lte;
+    }
+}